@@ -0,0 +1,434 @@
+/****************************************************************************
+ *  Compilation:  javac AnytimeSolver.java
+ *  Execution:    java AnytimeSolver input.txt [epsilon] [milliseconds]
+ *  Dependencies: Board.java, BucketQueue.java, LongHashSet.java,
+ *                LongIntHashMap.java, NodeArena.java, algs4.jar
+ *
+ * Solver for sliding puzzles too big to be solved optimally in time, which
+ * trades the length of the solution for the time to find it.
+ *
+ * Weighted A* orders nodes by moves + epsilon * Manhattan distance, and
+ * finds a solution at most epsilon times longer than the shortest one,
+ * usually expanding far fewer boards than A*.
+ *
+ * Anytime Repairing A* (ARA*) runs a series of weighted A* searches with
+ * decreasing epsilon, within a time budget. Each search reuses the nodes of
+ * the previous one: only boards whose number of moves has improved since
+ * they were expanded are expanded again, and nodes that cannot lead to a
+ * solution shorter than the best one found are dropped. Every better
+ * solution is reported with its proven bound, the ratio of its length to
+ * the smallest moves + Manhattan distance left to explore, so the caller
+ * can take the best answer found when the time is up.
+ *
+ * Nodes are kept in a NodeArena, the best node of each board in a map of
+ * board keys, and the open list is a BucketQueue, as in Solver. The input
+ * file starts with the size of the side, or the numbers of rows and
+ * columns of a rectangular board.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.In;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+public class AnytimeSolver {
+
+    private static final double EPSILON_STEP = 0.5;   // decrease of epsilon between searches
+    private static final int CLOCK_CHECK = 1024;      // open list removals between deadline checks
+
+    /**
+     * Receives the solutions found by Anytime Repairing A*, each one shorter
+     * than the one before.
+     */
+    public interface ImprovementListener {
+        /**
+         * Called for each better solution.
+         * @param moves moves of the empty block, 'U', 'D', 'L' or 'R'
+         * @param bound the solution is at most bound times longer than
+         *              the shortest one
+         */
+        void improved(byte[] moves, double bound);
+    }
+
+    private final Board initial;
+    private final boolean solvable;
+    private int moves = -1;
+    private byte[] path;            // path[i] = name of move i, U, D, L or R
+    private double bound = Double.POSITIVE_INFINITY;
+
+    // search state, released when the search is over
+    private NodeArena arena;
+    private BucketQueue open;
+    private LongHashSet closed;     // boards expanded by the current search
+    private LongIntHashMap best;    // board key -> node with the fewest moves
+    private int[] incons;           // improved nodes of boards already expanded
+    private int inconsSize;
+    private int incumbent = -1;     // goal node of the best solution
+    private long deadline;
+    private boolean timed;
+    private int expansions;
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using weighted A*, at most epsilon times longer than the shortest one
+     *
+     * @param initial board for solving
+     * @param epsilon weight of the heuristic, 1 for an optimal solution
+     * @throws IllegalArgumentException unless epsilon >= 1
+     */
+    public AnytimeSolver(Board initial, double epsilon) {
+        if (!(epsilon >= 1)) {
+            throw new java.lang.IllegalArgumentException("epsilon " + epsilon);
+        }
+        this.initial = initial;
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
+        search(epsilon, epsilon, null);
+    }
+
+    /**
+     * Constructs the Solver and improves solutions to the initial board
+     * using Anytime Repairing A*, starting from the given epsilon down to 1,
+     * until an optimal solution is found or the time budget is spent.
+     * The solution of the Solver is the best one found; if time is up before
+     * any solution is found, there is none and moves() returns -1.
+     *
+     * @param initial  board for solving
+     * @param epsilon  weight of the heuristic in the first search
+     * @param millis   time budget in milliseconds
+     * @param listener receives every better solution, or null
+     * @throws IllegalArgumentException unless epsilon >= 1 and millis > 0
+     */
+    public AnytimeSolver(Board initial, double epsilon, long millis,
+                         ImprovementListener listener) {
+        if (!(epsilon >= 1) || millis <= 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        this.initial = initial;
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
+        timed = true;
+        deadline = System.nanoTime() + millis * 1_000_000L;
+        search(epsilon, 1.0, listener);
+    }
+
+    private void search(double epsilon, double last, ImprovementListener listener) {
+        if (initial.isGoal()) {
+            moves = 0;
+            path = new byte[0];
+            bound = 1.0;
+            if (listener != null) {
+                listener.improved(new byte[0], bound);
+            }
+            return;
+        }
+
+        arena = new NodeArena(initial.rows(), initial.cols());
+        open = new BucketQueue();
+        closed = new LongHashSet();
+        best = new LongIntHashMap();
+        incons = new int[16];
+
+        int h = initial.manhattan();
+        int root = arena.add(initial, -1, 0, h);
+        best.put(initial.key(), root);
+        open.insert(root, priority(0, h, epsilon), h);
+
+        while (true) {
+            int previous = incumbent;
+            boolean finished = improvePath(epsilon);
+            if (incumbent != previous) {
+                bound = Math.min(epsilon, (double) arena.moves(incumbent) / lowerBound());
+                buildPath();
+                if (listener != null) {
+                    listener.improved(Arrays.copyOf(path, path.length), bound);
+                }
+            }
+            if (!finished || epsilon <= last) {
+                break;
+            }
+            epsilon = Math.max(last, epsilon - EPSILON_STEP);
+            reorder(epsilon);
+        }
+        if (incumbent >= 0) {
+            bound = Math.min(bound, (double) arena.moves(incumbent) / lowerBound());
+        }
+
+        arena = null;
+        open = null;
+        closed = null;
+        best = null;
+        incons = null;
+    }
+
+    private static int priority(int g, int h, double epsilon) {
+        return g + (int) (epsilon * h);
+    }
+
+    // moves of the best solution so far
+    private int incumbentMoves() {
+        return incumbent < 0 ? Integer.MAX_VALUE : arena.moves(incumbent);
+    }
+
+    /*
+     * Weighted A* from the current open list, until no node in it can lead
+     * to a better solution within the weight. Returns false if the time is
+     * up first.
+     */
+    private boolean improvePath(double epsilon) {
+        while (!open.isEmpty() && incumbentMoves() > open.minPriority()) {
+            // before delMin(): the nodes left open are all counted by lowerBound()
+            if (timed && ++expansions % CLOCK_CHECK == 0 && System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            int node = open.delMin();
+            long key = arena.key(node);
+            if (best.get(key, -1) != node) {
+                continue;       // a better node of the board was found since
+            }
+            closed.add(key);
+
+            // children get their distance from the node's, as in Solver
+            Board board = arena.board(node);
+            int g = arena.moves(node) + 1;
+            int parentH = arena.heuristic(node);
+            for (int moves = board.legalMoves(); moves != 0; moves &= moves - 1) {
+                int move = Integer.numberOfTrailingZeros(moves);
+                int h = parentH + board.manhattanChange(move);
+                if (g + h >= incumbentMoves()) {
+                    continue;   // cannot lead to a better solution
+                }
+                long childKey = board.keyAfter(move);
+                int old = best.get(childKey, -1);
+                if (old >= 0 && arena.moves(old) <= g) {
+                    continue;
+                }
+                int child = arena.isPacked()
+                        ? arena.add(childKey, node, g, h)
+                        : arena.add(board.move(move), node, g, h);
+                best.put(childKey, child);
+
+                if (h == 0) {
+                    incumbent = child;
+                } else if (closed.contains(childKey)) {
+                    if (inconsSize == incons.length) {
+                        incons = Arrays.copyOf(incons, 2 * inconsSize);
+                    }
+                    incons[inconsSize++] = child;
+                } else {
+                    open.insert(child, priority(g, h, epsilon), h);
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Prepares the next search: moves the improved expanded nodes back to
+     * the open list, reorders it by the new weight and drops stale nodes
+     * and nodes that cannot lead to a better solution.
+     */
+    private void reorder(double epsilon) {
+        int[] nodes = new int[open.size() + inconsSize];
+        int count = 0;
+        while (!open.isEmpty()) {
+            nodes[count++] = open.delMin();
+        }
+        for (int i = 0; i < inconsSize; i++) {
+            nodes[count++] = incons[i];
+        }
+        inconsSize = 0;
+        closed.clear();
+
+        for (int i = 0; i < count; i++) {
+            int node = nodes[i];
+            int g = arena.moves(node);
+            int h = arena.heuristic(node);
+            if (best.get(arena.key(node), -1) == node && g + h < incumbentMoves()) {
+                open.insert(node, priority(g, h, epsilon), h);
+            }
+        }
+    }
+
+    // smallest moves + Manhattan distance over the nodes left, capped by the solution
+    private int lowerBound() {
+        int lower = incumbentMoves();
+        if (!open.isEmpty()) {
+            // the open list is ordered by weighted priority, scan it all
+            int[] nodes = new int[open.size()];
+            int[] priorities = new int[nodes.length];
+            int count = 0;
+            while (!open.isEmpty()) {
+                priorities[count] = open.minPriority();
+                nodes[count++] = open.delMin();
+            }
+            for (int i = 0; i < count; i++) {
+                int node = nodes[i];
+                int h = arena.heuristic(node);
+                lower = Math.min(lower, arena.moves(node) + h);
+                open.insert(node, priorities[i], h);
+            }
+        }
+        for (int i = 0; i < inconsSize; i++) {
+            lower = Math.min(lower, arena.moves(incons[i]) + arena.heuristic(incons[i]));
+        }
+        return Math.max(lower, 1);
+    }
+
+    private void buildPath() {
+        int node = incumbent;
+        moves = arena.moves(node);
+        path = new byte[moves];
+        Board board = arena.board(node);
+        for (int i = moves - 1; i >= 0; i--) {
+            node = arena.parent(node);
+            Board parent = arena.board(node);
+            path[i] = (byte) Board.moveName(parent.moveTo(board));
+            board = parent;
+        }
+    }
+
+    /**
+     * Checks if this board is solvable.
+     *
+     * @return true  if board is solvable
+     *         false otherwise
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Returns the number of moves of the solution found, or -1 if board is
+     * unsolvable or no solution was found in time.
+     *
+     * @return int number of moves of the solution
+     */
+    public int moves() {
+        return moves;
+    }
+
+    /**
+     * Returns the proven bound on the solution found: its length is at most
+     * bound times the minimum number of moves. Returns infinity if there is
+     * no solution.
+     *
+     * @return double suboptimality bound, 1 for an optimal solution
+     */
+    public double bound() {
+        return bound;
+    }
+
+    /**
+     * Returns the moves of the empty block from the initial board to the
+     * solution, one byte per move: 'U', 'D', 'L' or 'R'.
+     * Returns null if there is no solution.
+     *
+     * @return byte[] new array of moves() move names
+     */
+    public byte[] moveSequence() {
+        if (path == null) {
+            return null;
+        }
+        return Arrays.copyOf(path, path.length);
+    }
+
+    /**
+     * Returns the sequence of Boards from the initial board to the solution.
+     * Returns null if there is no solution. Boards are replayed from the
+     * move sequence, one at a time as the iteration reaches them.
+     *
+     * @return Iterable object to loop through the solution chain
+     */
+    public Iterable<Board> solution() {
+        if (path == null) {
+            return null;
+        }
+        return () -> new Iterator<Board>() {
+            private Board board;
+            private int next = -1;      // index of the next move, -1 for the initial board
+
+            @Override
+            public boolean hasNext() {
+                return next < path.length;
+            }
+
+            @Override
+            public Board next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                board = next < 0 ? initial : board.move(Board.moveOf((char) path[next]));
+                next++;
+                return board;
+            }
+        };
+    }
+
+    // solve a slider puzzle (given below)
+    public static void main(String[] args) throws IOException {
+
+        // create initial board from file, "n" or "rows cols" on the first line
+        In in = new In(args[0]);
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = in.readInt();
+        Board initial = new Board(blocks);
+
+        // solve the puzzle, by ARA* if a time budget is given
+        double epsilon = args.length > 1 ? Double.parseDouble(args[1]) : 2.0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        AnytimeSolver solver;
+        if (args.length > 2) {
+            solver = new AnytimeSolver(initial, epsilon, Long.parseLong(args[2]),
+                    (moves, bound) -> {
+                        try {
+                            out.write("Found " + moves.length + " moves, bound " + bound + "\n");
+                            out.flush();
+                        } catch (IOException e) {
+                            throw new java.io.UncheckedIOException(e);
+                        }
+                    });
+        } else {
+            solver = new AnytimeSolver(initial, epsilon);
+        }
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            out.write("No solution possible\n");
+        else if (solver.moves() < 0)
+            out.write("No solution found in time\n");
+        else {
+            out.write("Number of moves = " + solver.moves() + ", bound " + solver.bound() + "\n");
+            for (Board board : solver.solution()) {
+                board.writeTo(out);
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+}
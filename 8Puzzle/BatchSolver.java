@@ -0,0 +1,146 @@
+/****************************************************************************
+ *  Compilation:  javac BatchSolver.java
+ *  Execution:    java BatchSolver [threads] < boards.txt
+ *  Dependencies: Board.java, Solver.java, algs4.jar
+ *
+ * Solves a stream of 8-puzzle boards in parallel.
+ * Boards are read one after another, each is solved as a separate task on
+ * a work-stealing ForkJoinPool and results are handed back in input order.
+ * Each worker thread keeps one Solver workspace and reuses it for every
+ * board it solves. At most a few tasks per thread are in flight, so the
+ * input can be arbitrarily long.
+ *
+ * The command line client reads boards in the Solver input format
+ * ("n" or "rows cols", then the blocks row by row) from standard input and
+ * prints the minimum number of moves of each board, -1 if it is unsolvable,
+ * one per line.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.StdIn;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+public class BatchSolver implements AutoCloseable {
+
+    private static final int TASKS_PER_THREAD = 4;  // in-flight tasks per thread
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Solver.Workspace> workspaces =
+            ThreadLocal.withInitial(Solver.Workspace::new);
+
+    /**
+     * Creates a batch solver using all available processors.
+     */
+    public BatchSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a batch solver with the given number of worker threads.
+     *
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public BatchSolver(int threads) {
+        if (threads <= 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Solves all boards and passes the solvers to the consumer in the order
+     * the boards were given. The consumer runs on the calling thread.
+     *
+     * @param boards boards to solve
+     * @param results receives the solver of each board
+     */
+    public void solve(Iterator<Board> boards, Consumer<Solver> results) {
+        int window = TASKS_PER_THREAD * pool.getParallelism();
+        ArrayDeque<ForkJoinTask<Solver>> pending = new ArrayDeque<>();
+
+        while (boards.hasNext()) {
+            Board board = boards.next();
+            pending.addLast(pool.submit(() -> new Solver(board, workspaces.get())));
+            if (pending.size() >= window) {
+                results.accept(pending.removeFirst().join());
+            }
+        }
+        while (!pending.isEmpty()) {
+            results.accept(pending.removeFirst().join());
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // boards read from standard input in the Solver input format
+    private static class StdInBoards implements Iterator<Board> {
+
+        @Override
+        public boolean hasNext() {
+            return !StdIn.isEmpty();
+        }
+
+        @Override
+        public Board next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // "n" or "rows cols" on the first line of each board
+            String line = StdIn.readLine();
+            while (line.trim().isEmpty()) {
+                line = StdIn.readLine();
+            }
+            String[] size = line.trim().split("\\s+");
+            int rows = Integer.parseInt(size[0]);
+            int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+            int[][] blocks = new int[rows][cols];
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    blocks[i][j] = StdIn.readInt();
+            return new Board(blocks);
+        }
+    }
+
+    // solve slider puzzles from standard input
+    public static void main(String[] args) throws IOException {
+        int threads = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        try (BatchSolver batch = new BatchSolver(threads)) {
+            batch.solve(new StdInBoards(), solver -> {
+                try {
+                    out.write(Integer.toString(solver.moves()));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        out.flush();
+    }
+}
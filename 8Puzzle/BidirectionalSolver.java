@@ -0,0 +1,206 @@
+/****************************************************************************
+ *  Compilation:  javac BidirectionalSolver.java
+ *  Execution:    java BidirectionalSolver input.txt
+ *  Dependencies: Board.java, LongIntHashMap.java, algs4.jar
+ *
+ * Solver for the 8-puzzle problem using bidirectional breadth-first search.
+ * One search starts from the initial board and one from the goal board.
+ * Each step expands a whole layer of the search with the smaller frontier,
+ * and every new board is looked up in the visited map of the other
+ * direction. The shortest path through the boards met in that layer is the
+ * solution: a shorter path would have met in an earlier layer.
+ *
+ * Each direction visits boards within about half the solution length, so
+ * on boards where Manhattan distance guides A* poorly far fewer boards are
+ * visited than by a one-directional search. Visited maps are keyed by the
+ * primitive board key.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.StdOut;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+public class BidirectionalSolver {
+
+    private final boolean solvable;
+    private int moves = -1;
+    private Queue<Board> solution;
+
+    /*
+     * Boards visited in one direction. Node i holds boards.get(i), the index
+     * of the node it was reached from and its distance from the start.
+     * The frontier holds the nodes of the last layer.
+     */
+    private static final class Direction {
+
+        private final ArrayList<Board> boards = new ArrayList<>();
+        private int[] parents = new int[64];
+        private int[] depths = new int[64];
+        private final LongIntHashMap visited = new LongIntHashMap();
+        private int[] frontier = { 0 };
+        private int frontierSize = 1;
+        private int depth;
+
+        Direction(Board start) {
+            add(start, -1, 0);
+        }
+
+        private int add(Board board, int parent, int distance) {
+            int index = boards.size();
+            if (index == parents.length) {
+                parents = Arrays.copyOf(parents, 2 * index);
+                depths = Arrays.copyOf(depths, 2 * index);
+            }
+            boards.add(board);
+            parents[index] = parent;
+            depths[index] = distance;
+            visited.put(board.key(), index);
+            return index;
+        }
+    }
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using bidirectional breadth-first search
+     *
+     * @param initial board for solving
+     */
+    public BidirectionalSolver(Board initial) {
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
+
+        Direction forward = new Direction(initial);
+        Direction backward = new Direction(goal(initial.rows(), initial.cols()));
+
+        int meetForward = 0;
+        int meetBackward = backward.visited.get(initial.key(), -1);
+        int best = meetBackward >= 0 ? 0 : Integer.MAX_VALUE;
+
+        while (best == Integer.MAX_VALUE) {
+            boolean fromStart = forward.frontierSize <= backward.frontierSize;
+            Direction side = fromStart ? forward : backward;
+            Direction other = fromStart ? backward : forward;
+
+            int[] next = new int[4 * side.frontierSize];
+            int nextSize = 0;
+            for (int f = 0; f < side.frontierSize; f++) {
+                int index = side.frontier[f];
+                for (Board board : side.boards.get(index).neighbors()) {
+                    long key = board.key();
+                    if (side.visited.containsKey(key)) {
+                        continue;
+                    }
+                    int child = side.add(board, index, side.depth + 1);
+                    next[nextSize++] = child;
+
+                    int met = other.visited.get(key, -1);
+                    if (met >= 0 && side.depth + 1 + other.depths[met] < best) {
+                        best = side.depth + 1 + other.depths[met];
+                        meetForward = fromStart ? child : met;
+                        meetBackward = fromStart ? met : child;
+                    }
+                }
+            }
+            side.frontier = next;
+            side.frontierSize = nextSize;
+            side.depth++;
+        }
+
+        moves = best;
+        solution = new Queue<>();
+
+        // initial .. meeting board, collected backwards from the meeting board
+        Board[] path = new Board[forward.depths[meetForward] + 1];
+        for (int i = meetForward, k = path.length - 1; i >= 0; i = forward.parents[i], k--) {
+            path[k] = forward.boards.get(i);
+        }
+        for (Board board : path) {
+            solution.enqueue(board);
+        }
+        // boards after the meeting board, up to the goal
+        for (int i = backward.parents[meetBackward]; i >= 0; i = backward.parents[i]) {
+            solution.enqueue(backward.boards.get(i));
+        }
+    }
+
+    private static Board goal(int rows, int cols) {
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = (i * cols + j + 1) % (rows * cols);
+        return new Board(blocks);
+    }
+
+    /**
+     * Checks if this board is solvable.
+     *
+     * @return true  if board is solvable
+     *         false otherwise
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Returns the minimum number of moves to solve the initial board
+     * or -1 if board is unsolvable.
+     *
+     * @return int minimum number of moves to solve the initial board
+     */
+    public int moves() {
+        return moves;
+    }
+
+    /**
+     * Returns the sequence of Boards from the initial board to the solution.
+     * Returns null if initial board unsolvable.
+     *
+     * @return Iterable object to loop through the solution chain
+     */
+    public Iterable<Board> solution() {
+        return solution;
+    }
+
+    // solve a slider puzzle (given below)
+    public static void main(String[] args) {
+
+        // create initial board from file, "n" or "rows cols" on the first line
+        In in = new In(args[0]);
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = in.readInt();
+        Board initial = new Board(blocks);
+
+        // solve the puzzle
+        BidirectionalSolver solver = new BidirectionalSolver(initial);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -1,11 +1,20 @@
 /****************************************************************************
  *  Compilation:  javac Board.java
  *  Execution:    none
- *  Dependencies: algs4.jar
+ *  Dependencies: none
  *
  *  Data structure representing the state of a two-dimensional NxN board for
- *  solving 8-puzzle problem.
- *  Each block of the board has an int value, and 0 represents an empty block.
+ *  solving 8-puzzle problem, or of a rectangular board with N rows and M
+ *  columns. Each block of the board has an int value, and 0 represents an
+ *  empty block. In the goal board the blocks are in order row by row and
+ *  the empty block is the last one.
+ *
+ *  Blocks are kept in a char array (boards up to 256x256) together with the
+ *  position of the empty block. A neighbor is derived from its parent by
+ *  a single swap, its Hamming and Manhattan distances are updated from the
+ *  parent's in constant time. Every board also has a 64-bit key, updated
+ *  the same way: boards of at most 16 blocks are packed into it 4 bits per
+ *  block, bigger boards use a Zobrist hash of their blocks.
  *
  ****************************************************************************/
 
@@ -15,51 +24,159 @@
  *
  */
 
+import java.io.IOException;
 import java.util.Arrays;
-import edu.princeton.cs.algs4.Queue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 
 public class Board {
 
-    private final int sizeOfSide;   // size of the board side
-    private final int[] blocks;     // array containing board blocks
+    /**
+     * Moves, named by the direction the empty block goes.
+     * The inverse of a move is move ^ 1.
+     */
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    private static final String MOVE_NAMES = "UDLR";
+
+    /**
+     * Receives the legal moves of a board, see forEachMove().
+     */
+    public interface MoveVisitor {
+        /**
+         * Called for each legal move.
+         * @param move UP, DOWN, LEFT or RIGHT
+         */
+        void visit(int move);
+    }
+
+    private static final int MAX_PACKED = 16;   // max number of blocks in a packed key
+
+    private final int rows;         // number of rows
+    private final int cols;         // number of columns
+    private final char[] blocks;    // array containing board blocks
+    private final int blank;        // index of the empty block
+    private final long key;         // packed blocks or Zobrist hash
 
     private int hamming = -1;       // initial value to enforce calculation
     private int manhattan = -1;     // initial value to enforce calculation
+    private int linearConflict = -1;    // initial value to enforce calculation
 
 
     /**
-     * Construct a board from an N-by-N array of blocks
+     * Construct a board from an N-by-N, or N-by-M, array of blocks
      * (where blocks[i][j] = block in row i, column j)
      * for memory optimization given 2d array converts to 1d array.
      *
      * @param blocks 2d int array representing each block of the board
+     * @throws IllegalArgumentException if the rows have different lengths
      */
     public Board(int[][] blocks) {
-        sizeOfSide = blocks.length;
+        rows = blocks.length;
+        cols = rows == 0 ? 0 : blocks[0].length;
         this.blocks = copyBlocks(blocks);
+        blank = findBlank(this.blocks);
+        key = computeKey(this.blocks);
     }
 
     /**
-     * Private constructor for creation twins and neighbors of the board.
+     * Private constructor for creation twins of the board.
      *
-     * @param blocks      1d int array representing each block of the board
-     * @param sizeOfSide  int size of the board side
+     * @param blocks  1d char array representing each block of the board
+     * @param rows    int number of rows
+     * @param cols    int number of columns
      */
-    private Board(int[] blocks, int sizeOfSide) {
-        this.blocks = copyBlocks(blocks);
-        this.sizeOfSide = sizeOfSide;
+    private Board(char[] blocks, int rows, int cols) {
+        this.blocks = blocks;
+        this.rows = rows;
+        this.cols = cols;
+        blank = findBlank(blocks);
+        key = computeKey(blocks);
+    }
+
+    /**
+     * Private constructor for creation neighbors of the board: the block at
+     * target slides into the empty position of the parent.
+     *
+     * @param parent  board to move from
+     * @param target  index of the block next to the empty block
+     */
+    private Board(Board parent, int target) {
+        rows = parent.rows;
+        cols = parent.cols;
+        blocks = copyBlocks(parent.blocks);
+        blank = target;
+
+        int block = blocks[target];
+        blocks[parent.blank] = (char) block;
+        blocks[target] = 0;
+
+        hamming = parent.hamming()
+                - (block != target + 1 ? 1 : 0)
+                + (block != parent.blank + 1 ? 1 : 0);
+        manhattan = parent.manhattanAfterSlide(target);
+        key = parent.keyAfterSlide(target);
+    }
+
+    // key of the board after sliding the block at target into the empty position
+    private long keyAfterSlide(int target) {
+        int block = blocks[target];
+        if (blocks.length <= MAX_PACKED) {
+            return key
+                    - ((long) block << (4 * target))
+                    + ((long) block << (4 * blank));
+        }
+        return key
+                ^ zobrist(block, target)
+                ^ zobrist(block, blank);
+    }
+
+    // Manhattan distance after sliding the block at target into the empty position
+    private int manhattanAfterSlide(int target) {
+        return manhattan() + manhattanChangeOfSlide(target);
+    }
+
+    // change of the Manhattan distance by sliding the block at target into the empty position
+    private int manhattanChangeOfSlide(int target) {
+        int block = blocks[target];
+        return distance(block, blank) - distance(block, target);
+    }
+
+    /**
+     * Rebuilds a board of at most 16 blocks from its key.
+     *
+     * @param key   packed key returned by key()
+     * @param rows  number of rows
+     * @param cols  number of columns
+     * @return the board with the given key
+     */
+    static Board fromKey(long key, int rows, int cols) {
+        char[] blocks = new char[rows * cols];
+        if (blocks.length > MAX_PACKED) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = (char) (key >>> (4 * i) & 0xF);
+        }
+        return new Board(blocks, rows, cols);
     }
 
     /*
      * helper for copying arrays
      */
-    private int[] copyBlocks(int[][] source) {
-        int[] copy = new int[source.length * source.length];
-        for (int i = 0; i < source.length; i++) {
-            int[] xs = source[i];
-            int xsLength = xs.length;
-            System.arraycopy(xs, 0, copy, i * source.length, xsLength);
+    private char[] copyBlocks(int[][] source) {
+        char[] copy = new char[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            if (source[i].length != cols) {
+                throw new java.lang.IllegalArgumentException("rows of different lengths");
+            }
+            for (int j = 0; j < cols; j++) {
+                copy[i * cols + j] = (char) source[i][j];
+            }
         }
         return copy;
     }
@@ -67,19 +184,87 @@ public class Board {
     /*
      * helper for copying arrays
      */
-    private int[] copyBlocks(int[] source) {
-        int[] copy = new int[source.length];
+    private char[] copyBlocks(char[] source) {
+        char[] copy = new char[source.length];
         System.arraycopy(source, 0, copy, 0, source.length);
         return copy;
     }
 
+    private static int findBlank(char[] blocks) {
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] == 0) {
+                return i;
+            }
+        }
+        throw new java.lang.IllegalArgumentException("no empty block");
+    }
+
+    /*
+     * Packs blocks into a long, 4 bits per block with block 0 in the lowest
+     * bits; boards with more than 16 blocks get a Zobrist hash instead.
+     */
+    private static long computeKey(char[] blocks) {
+        if (blocks.length > MAX_PACKED) {
+            long hash = 0;
+            for (int i = 0; i < blocks.length; i++) {
+                if (blocks[i] != 0) {
+                    hash ^= zobrist(blocks[i], i);
+                }
+            }
+            return hash;
+        }
+        long packed = 0;
+        for (int i = blocks.length - 1; i >= 0; i--) {
+            packed = packed << 4 | blocks[i];
+        }
+        return packed;
+    }
+
+    /*
+     * Zobrist value of a block at a position. Values are derived with
+     * the SplitMix64 finalizer instead of read from a table, the table for
+     * a big board would have one entry per block and position.
+     */
+    private static long zobrist(int block, int position) {
+        long z = ((long) block << 32 | position) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /*
+     * Manhattan distance of the block from the given position
+     * to its goal position.
+     */
+    private int distance(int block, int position) {
+        int goal = block - 1;
+        return Math.abs(goal / cols - position / cols)
+                + Math.abs(goal % cols - position % cols);
+    }
 
     /**
-     * Size of the side of this board.
+     * Size of the side of this board, the number of rows of a rectangular
+     * board.
      * @return size of the side of this board
      */
     public int dimension() {
-        return sizeOfSide;
+        return rows;
+    }
+
+    /**
+     * Number of rows of this board.
+     * @return int number of rows
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Number of columns of this board.
+     * @return int number of columns
+     */
+    public int cols() {
+        return cols;
     }
 
     /**
@@ -114,17 +299,17 @@ public class Board {
 
         manhattan = 0;
 
-        // x-dimension, traversing cols
-        for (int i = 0; i < sizeOfSide; i++)
+        // x-dimension, traversing rows
+        for (int i = 0; i < rows; i++)
 
-            // y-dimension, traversing rows
-            for (int j = 0; j < sizeOfSide; j++) {
+            // y-dimension, traversing cols
+            for (int j = 0; j < cols; j++) {
 
                 // we don't compute Manhattan distance for an empty block (0)
-                if (blocks[i * sizeOfSide + j] != 0) {
+                if (blocks[i * cols + j] != 0) {
 
-                    int x = (blocks[i * sizeOfSide + j] - 1) / sizeOfSide;
-                    int y = (blocks[i * sizeOfSide + j] - 1) - x * sizeOfSide;
+                    int x = (blocks[i * cols + j] - 1) / cols;
+                    int y = (blocks[i * cols + j] - 1) - x * cols;
 
                     // x-distance to expected coordinate
                     int dx = x - i;
@@ -138,6 +323,78 @@ public class Board {
         return manhattan;
     }
 
+    /**
+     * Extra moves implied by linear conflicts, to be added to the Manhattan
+     * distance. Two blocks are in linear conflict if both are in their goal
+     * row (column) and have to pass each other to get to their goal
+     * positions; one of them has to leave the line and come back, which
+     * Manhattan distance does not count. manhattan() + linearConflict() is
+     * a lower bound on the number of moves to the goal.
+     *
+     * @return int extra moves implied by linear conflicts
+     */
+    public int linearConflict() {
+
+        if (linearConflict >= 0) { return linearConflict; }
+
+        linearConflict = 0;
+        int[] goals = new int[Math.max(rows, cols)];
+        int[] scratch = new int[goals.length];
+
+        // rows: blocks in their goal row, ordered by goal column
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int j = 0; j < cols; j++) {
+                int block = blocks[i * cols + j];
+                if (block != 0 && (block - 1) / cols == i) {
+                    goals[count++] = (block - 1) % cols;
+                }
+            }
+            linearConflict += lineConflict(goals, count, scratch);
+        }
+
+        // columns: blocks in their goal column, ordered by goal row
+        for (int j = 0; j < cols; j++) {
+            int count = 0;
+            for (int i = 0; i < rows; i++) {
+                int block = blocks[i * cols + j];
+                if (block != 0 && (block - 1) % cols == j) {
+                    goals[count++] = (block - 1) / cols;
+                }
+            }
+            linearConflict += lineConflict(goals, count, scratch);
+        }
+        return linearConflict;
+    }
+
+    /**
+     * Linear conflict cost of one line: given goal positions of the blocks
+     * which are in their goal line, in their current order, the blocks
+     * outside a longest increasing subsequence have to leave the line,
+     * two moves each.
+     *
+     * @param goals   goal positions along the line
+     * @param count   number of goal positions
+     * @param scratch array of at least count ints
+     * @return int extra moves for the line
+     */
+    static int lineConflict(int[] goals, int count, int[] scratch) {
+        // patience sorting, scratch[k] = smallest tail of a subsequence of length k + 1
+        int longest = 0;
+        for (int i = 0; i < count; i++) {
+            int lo = 0;
+            int hi = longest;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (scratch[mid] < goals[i]) lo = mid + 1;
+                else hi = mid;
+            }
+            scratch[lo] = goals[i];
+            if (lo == longest) longest++;
+        }
+        return 2 * (count - longest);
+    }
+
     /**
      * Checks if this board is a goal board.
      *
@@ -148,25 +405,89 @@ public class Board {
         return hamming() == 0;
     }
 
+    /**
+     * Compact 64-bit key of this board. Boards of at most 16 blocks have
+     * their blocks packed 4 bits each, block at index 0 in the lowest bits,
+     * so two such boards are equal if and only if their keys are equal.
+     * Bigger boards use a Zobrist hash, equal boards have equal keys and
+     * distinct boards collide with probability about 2^-64.
+     *
+     * @return long key of this board
+     */
+    long key() {
+        return key;
+    }
+
+    /**
+     * Checks if the goal board can be reached from this board.
+     * Every move keeps the parity of the number of inversions (pairs of
+     * blocks out of order, the empty block left out) on boards with an odd
+     * number of columns, and of inversions plus the row of the empty block
+     * on boards with an even number of columns. Inversions are counted with
+     * a Fenwick tree of the blocks seen so far in N^2 log N time. On a
+     * board of a single row or column blocks cannot pass each other, so
+     * there must be no inversions at all.
+     *
+     * @return true   if the board is solvable
+     *         false  otherwise
+     */
+    public boolean isSolvable() {
+        int[] tree = new int[blocks.length];   // Fenwick tree over blocks 1..n^2-1
+        long inversions = 0;
+        int seen = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            int block = blocks[i];
+            if (block == 0) {
+                continue;
+            }
+            // blocks seen so far which are greater than this one
+            int notGreater = 0;
+            for (int k = block; k > 0; k -= k & -k) {
+                notGreater += tree[k];
+            }
+            inversions += seen - notGreater;
+            for (int k = block; k < tree.length; k += k & -k) {
+                tree[k]++;
+            }
+            seen++;
+        }
+
+        if (rows == 1 || cols == 1) {
+            // blocks in a single line cannot pass each other
+            return inversions == 0;
+        }
+        if (cols % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        // the goal has no inversions and the empty block in the last row
+        return (inversions + blank / cols) % 2 == (rows - 1) % 2;
+    }
+
     // a board that is obtained by exchanging any pair of blocks
     public Board twin() {
-        int[] copy = copyBlocks(blocks);
+        char[] copy = copyBlocks(blocks);
 
 
         if (copy[0] > 0 && copy[1] > 0) {
 
-            int block = copy[0];
+            char block = copy[0];
             // swap
             copy[0] = copy[1];
             copy[1] = block;
 
-        } else {
-            int block = copy[sizeOfSide];
+        } else if (cols + 1 < copy.length && copy[cols] > 0 && copy[cols + 1] > 0) {
+            char block = copy[cols];
             // swap
-            copy[sizeOfSide] = copy[sizeOfSide + 1];
-            copy[sizeOfSide + 1] = block;
+            copy[cols] = copy[cols + 1];
+            copy[cols + 1] = block;
+        } else {
+            // a single row or column: the empty block is at 0 or 1, swap the next two
+            int other = copy[0] == 0 ? 1 : 0;
+            char block = copy[2];
+            copy[2] = copy[other];
+            copy[other] = block;
         }
-        return new Board(copy, sizeOfSide);
+        return new Board(copy, rows, cols);
     }
 
     /**
@@ -190,62 +511,207 @@ public class Board {
 
         Board that = (Board) y;
 
-        return Arrays.equals(this.blocks, that.blocks);
+        return this.cols == that.cols && Arrays.equals(this.blocks, that.blocks);
     }
 
     /**
-     * Generates all neighboring boards.
-     * @return Iterable object to loop through all neighbor boards
+     * Block at the given index, row by row.
+     *
+     * @param index index of the block, row * cols() + column
+     * @return int block at the index, 0 for the empty block
      */
-    public Iterable<Board> neighbors() {
-        int x = 0;
-        int y = 0;
-
-        // searching for blank block position
-        for (int i = 0; i < sizeOfSide; i++) {
-            for (int j = 0; j < sizeOfSide; j++) {
-                if (blocks[i * sizeOfSide + j] == 0) {
-                    x = i;
-                    y = j;
-                }
-            }
+    int blockAt(int index) {
+        return blocks[index];
+    }
+
+    /**
+     * Index of the empty block, row by row.
+     *
+     * @return int index of the empty block
+     */
+    int blank() {
+        return blank;
+    }
+
+    /**
+     * Board obtained by sliding the block at target into the empty position.
+     *
+     * @param target index of a block next to the empty block
+     * @return the neighboring board
+     * @throws IllegalArgumentException if target is not next to the empty block
+     */
+    Board moveBlank(int target) {
+        int dx = Math.abs(target / cols - blank / cols);
+        int dy = Math.abs(target % cols - blank % cols);
+        if (target < 0 || target >= blocks.length || dx + dy != 1) {
+            throw new java.lang.IllegalArgumentException();
         }
+        return new Board(this, target);
+    }
 
-        Queue<Board> neighbors = new Queue<>();
+    /**
+     * Returns hash code consistent with equals().
+     * @return int hash code of this board
+     */
+    @Override
+    public int hashCode() {
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Legal moves of this board as a bit set, bit m is set if move m
+     * (UP, DOWN, LEFT or RIGHT) is legal.
+     * @return int bit set of legal moves
+     */
+    public int legalMoves() {
+        int x = blank / cols;
+        int y = blank % cols;
+        int moves = 0;
+        if (x > 0) moves |= 1 << UP;
+        if (x < rows - 1) moves |= 1 << DOWN;
+        if (y > 0) moves |= 1 << LEFT;
+        if (y < cols - 1) moves |= 1 << RIGHT;
+        return moves;
+    }
 
-        // enqueue left neighbor if it exists
-        if (x > 0) {
-            int[] neighborBlocks = copyBlocks(blocks);
-            neighborBlocks[x * sizeOfSide + y] = neighborBlocks[(x - 1) * sizeOfSide + y];
-            neighborBlocks[(x - 1) * sizeOfSide + y] = 0;
-            neighbors.enqueue(new Board(neighborBlocks, sizeOfSide));
+    /**
+     * Calls the visitor with each legal move of this board. No board is
+     * created, the visitor can call move() for the moves it wants.
+     * @param visitor receives the moves
+     */
+    public void forEachMove(MoveVisitor visitor) {
+        for (int moves = legalMoves(); moves != 0; moves &= moves - 1) {
+            visitor.visit(Integer.numberOfTrailingZeros(moves));
         }
+    }
 
-        // enqueue right neighbor if it exists
-        if (x < sizeOfSide - 1) {
-            int[] neighborBlocks = copyBlocks(blocks);
-            neighborBlocks[x * sizeOfSide + y] = neighborBlocks[(x + 1)* sizeOfSide + y];
-            neighborBlocks[(x + 1)* sizeOfSide + y] = 0;
-            neighbors.enqueue(new Board(neighborBlocks, sizeOfSide));
+    /**
+     * Board obtained by the given move of the empty block.
+     * @param move UP, DOWN, LEFT or RIGHT
+     * @return the neighboring board
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public Board move(int move) {
+        return new Board(this, target(move));
+    }
+
+    /**
+     * Manhattan distance of the board obtained by the given move,
+     * without creating it.
+     * @param move UP, DOWN, LEFT or RIGHT
+     * @return int Manhattan distance after the move
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public int manhattanAfter(int move) {
+        return manhattanAfterSlide(target(move));
+    }
+
+    /**
+     * Change of the Manhattan distance by the given move, -1 or +1, in
+     * constant time even if manhattan() has not been computed for this
+     * board: manhattanAfter(move) == manhattan() + manhattanChange(move).
+     * @param move UP, DOWN, LEFT or RIGHT
+     * @return int change of the Manhattan distance
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public int manhattanChange(int move) {
+        return manhattanChangeOfSlide(target(move));
+    }
+
+    /**
+     * Key of the board obtained by the given move, without creating it.
+     * @param move UP, DOWN, LEFT or RIGHT
+     * @return long key after the move
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    long keyAfter(int move) {
+        return keyAfterSlide(target(move));
+    }
+
+    /**
+     * One letter name of the move: U, D, L or R.
+     * @param move UP, DOWN, LEFT or RIGHT
+     * @return char name of the move
+     * @throws IllegalArgumentException if there is no such move
+     */
+    public static char moveName(int move) {
+        if (move < 0 || move > RIGHT) {
+            throw new java.lang.IllegalArgumentException("no move " + move);
         }
+        return MOVE_NAMES.charAt(move);
+    }
 
-        // enqueue top neighbor if it exists
-        if (y > 0) {
-            int[] neighborBlocks = copyBlocks(blocks);
-            neighborBlocks[x * sizeOfSide + y] = neighborBlocks[x * sizeOfSide + (y - 1)];
-            neighborBlocks[x * sizeOfSide + (y - 1)] = 0;
-            neighbors.enqueue(new Board(neighborBlocks, sizeOfSide));
+    /**
+     * Move named by the letter, the inverse of moveName().
+     * @param name U, D, L or R
+     * @return int UP, DOWN, LEFT or RIGHT
+     * @throws IllegalArgumentException if there is no such move
+     */
+    public static int moveOf(char name) {
+        int move = MOVE_NAMES.indexOf(name);
+        if (move < 0) {
+            throw new java.lang.IllegalArgumentException("no move " + name);
         }
+        return move;
+    }
 
-        // enqueue bottom neighbor if it exists
-        if (y < sizeOfSide - 1) {
-            int[] neighborBlocks = copyBlocks(blocks);
-            neighborBlocks[x * sizeOfSide + y] = neighborBlocks[x * sizeOfSide + (y + 1)];
-            neighborBlocks[x * sizeOfSide + (y + 1)] = 0;
-            neighbors.enqueue(new Board(neighborBlocks, sizeOfSide));
+    /**
+     * Move of the empty block that leads from this board to the neighbor.
+     * @param neighbor a neighbor of this board
+     * @return int UP, DOWN, LEFT or RIGHT
+     * @throws IllegalArgumentException if the board is not a neighbor
+     */
+    int moveTo(Board neighbor) {
+        int d = neighbor.blank - blank;
+        int move;
+        if (d == -cols)         move = UP;
+        else if (d == cols)     move = DOWN;
+        else if (d == -1)       move = LEFT;
+        else if (d == 1)        move = RIGHT;
+        else throw new java.lang.IllegalArgumentException("not a neighbor");
+        if (neighbor.cols != cols || neighbor.rows != rows || (legalMoves() & 1 << move) == 0) {
+            throw new java.lang.IllegalArgumentException("not a neighbor");
         }
+        return move;
+    }
+
+    // index of the block the empty block swaps with on the move
+    private int target(int move) {
+        if (move < 0 || move > RIGHT || (legalMoves() & 1 << move) == 0) {
+            throw new java.lang.IllegalArgumentException("illegal move " + move);
+        }
+        switch (move) {
+            case UP:    return blank - cols;
+            case DOWN:  return blank + cols;
+            case LEFT:  return blank - 1;
+            default:    return blank + 1;
+        }
+    }
 
-        return neighbors;
+    /**
+     * Generates all neighboring boards. Each neighbor is created when
+     * the iteration reaches it.
+     * @return Iterable object to loop through all neighbor boards
+     */
+    public Iterable<Board> neighbors() {
+        return () -> new Iterator<Board>() {
+            private int moves = legalMoves();
+
+            @Override
+            public boolean hasNext() {
+                return moves != 0;
+            }
+
+            @Override
+            public Board next() {
+                if (moves == 0) {
+                    throw new NoSuchElementException();
+                }
+                int move = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                return move(move);
+            }
+        };
     }
 
     /**
@@ -255,18 +721,53 @@ public class Board {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder();
-        
-        s.append(sizeOfSide + "\n");
-        for (int i = 0; i < sizeOfSide; i++) {
-            for (int j = 0; j < sizeOfSide; j++) {
-                s.append(String.format("%2d ", blocks[i * sizeOfSide + j]));
-            }
-            s.append("\n");
+        try {
+            writeTo(s);
+        } catch (IOException e) {
+            throw new AssertionError(e);    // StringBuilder does not throw
         }
-        s.append("\n");
         return s.toString();
     }
 
+    /**
+     * Writes the String representation of this board, the same as
+     * toString(), without building it first. The first line is the size of
+     * the side, or the numbers of rows and columns of a rectangular board.
+     * @param out where to write, usually a buffered writer
+     * @throws IOException if writing fails
+     */
+    public void writeTo(Appendable out) throws IOException {
+        appendInt(out, rows);
+        if (cols != rows) {
+            out.append(' ');
+            appendInt(out, cols);
+        }
+        out.append('\n');
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int block = blocks[i * cols + j];
+                if (block < 10) {
+                    out.append(' ');
+                }
+                appendInt(out, block);
+                out.append(' ');
+            }
+            out.append('\n');
+        }
+        out.append('\n');
+    }
+
+    // decimal digits of a non-negative value, no String created below 100
+    private static void appendInt(Appendable out, int value) throws IOException {
+        if (value < 10) {
+            out.append((char) ('0' + value));
+        } else if (value < 100) {
+            out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        } else {
+            out.append(Integer.toString(value));
+        }
+    }
+
     // unit tests (not graded)
     public static void main(String[] args) {
 
@@ -0,0 +1,237 @@
+/****************************************************************************
+ *  Compilation:  javac BucketQueue.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Monotone priority queue of int node indices with small integer
+ *  priorities, for A* search. A node is inserted with its f = g + h and its
+ *  h; nodes come out by smallest f, ties broken by smallest h.
+ *
+ *  Buckets have two levels: a level for each f, holding an int stack for
+ *  each h in the range of heuristics inserted with that f. A level is
+ *  released once the smallest f passes it and kept in a small pool for
+ *  reuse by a new f, so only the f values in the queue take memory, each
+ *  in proportion to its range of h, also for the large f of weighted
+ *  priorities on big boards. Insert and delete-min take constant time plus
+ *  the scan of empty buckets, which is bounded by the largest f and the
+ *  range of h of each f over the whole search when priorities never
+ *  decrease, as with a consistent heuristic.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class BucketQueue {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int POOL_SIZE = 64;        // released levels kept for reuse
+
+    private int[][][] buckets;  // buckets[f][h - bases[f]] = stack of nodes with priority f and heuristic h
+    private int[][] sizes;      // sizes[f][h - bases[f]] = number of nodes in that stack
+    private int[] bases;        // bases[f] = heuristic of the first stack of level f
+    private int[] lows;         // no nonempty stack of level f below h = lows[f]
+    private int[] counts;       // counts[f] = number of nodes with priority f
+    private int min;            // no node with priority below min
+    private int max;            // largest priority inserted since clear()
+    private int size;
+
+    private final int[][][] poolBuckets = new int[POOL_SIZE][][];   // released empty levels
+    private final int[][] poolSizes = new int[POOL_SIZE][];
+    private int pooled;
+
+    /**
+     * Initializes an empty queue.
+     */
+    public BucketQueue() {
+        buckets = new int[64][][];
+        sizes = new int[64][];
+        bases = new int[64];
+        lows = new int[64];
+        counts = new int[64];
+        min = 0;
+        max = -1;
+        size = 0;
+    }
+
+    /**
+     * Is this queue empty?
+     * @return true  if this queue is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of nodes in the queue.
+     * @return the number of nodes in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the node to this queue.
+     * @param node node index
+     * @param f    priority, moves + heuristic
+     * @param h    heuristic, 0 <= h <= f
+     * @throws IllegalArgumentException unless 0 <= h <= f < Integer.MAX_VALUE
+     */
+    public void insert(int node, int f, int h) {
+        if (h < 0 || h > f || f == Integer.MAX_VALUE) {
+            throw new java.lang.IllegalArgumentException("f = " + f + ", h = " + h);
+        }
+        if (f >= buckets.length) {
+            int capacity = (int) Math.min(Math.max(2L * buckets.length, f + 1), Integer.MAX_VALUE);
+            buckets = Arrays.copyOf(buckets, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            bases = Arrays.copyOf(bases, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        if (buckets[f] == null) {
+            allocate(f, h);
+        } else if (h < bases[f] || h - bases[f] >= buckets[f].length) {
+            grow(f, h);
+        }
+
+        int i = h - bases[f];
+        int[][] level = buckets[f];
+        int[] bucket = level[i];
+        if (sizes[f][i] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, Math.max(8, 2 * bucket.length));
+            level[i] = bucket;
+        }
+        bucket[sizes[f][i]++] = node;
+        counts[f]++;
+        size++;
+        if (counts[f] == 1 || h < lows[f]) {
+            lows[f] = h;
+        }
+        if (f < min) {
+            min = f;
+        }
+        if (f > max) {
+            max = f;
+        }
+    }
+
+    // a level for priority f starting at heuristic h, from the pool if there is one
+    private void allocate(int f, int h) {
+        if (pooled > 0) {
+            pooled--;
+            buckets[f] = poolBuckets[pooled];
+            sizes[f] = poolSizes[pooled];
+            poolBuckets[pooled] = null;
+            poolSizes[pooled] = null;
+        } else {
+            int[][] level = new int[Math.min(8, f + 1)][];
+            Arrays.fill(level, EMPTY);
+            buckets[f] = level;
+            sizes[f] = new int[level.length];
+        }
+        // room on both sides of h, within 0 <= h <= f
+        int length = buckets[f].length;
+        bases[f] = Math.max(0, Math.min(h - length / 2, f + 1 - length));
+    }
+
+    // makes room for heuristic h in level f, doubling it up to the f + 1 heuristics there can be
+    private void grow(int f, int h) {
+        int[][] level = buckets[f];
+        int length = level.length;
+        int base = bases[f];
+        int first = Math.min(base, h);
+        int last = Math.max(base + length - 1, h);
+        int capacity = Math.max(Math.min(2 * length, f + 1), last - first + 1);
+
+        // keep the new room on the side that needed it
+        int newBase = h < base ? Math.max(0, last - capacity + 1) : first;
+        int[][] newLevel = new int[capacity][];
+        Arrays.fill(newLevel, EMPTY);
+        System.arraycopy(level, 0, newLevel, base - newBase, length);
+        int[] newSizes = new int[capacity];
+        System.arraycopy(sizes[f], 0, newSizes, base - newBase, length);
+
+        buckets[f] = newLevel;
+        sizes[f] = newSizes;
+        bases[f] = newBase;
+    }
+
+    /**
+     * Removes and returns a node with the smallest f, and the smallest h
+     * among those. Nodes with equal f and h come out last in, first out.
+     * @return node index
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int delMin() {
+        int f = minPriority();
+        int[] levelSizes = sizes[f];
+        int i = lows[f] - bases[f];
+        while (levelSizes[i] == 0) {
+            i++;
+        }
+        lows[f] = i + bases[f];
+        counts[f]--;
+        size--;
+        return buckets[f][i][--levelSizes[i]];
+    }
+
+    /**
+     * Returns the smallest f of the nodes in this queue.
+     * @return int smallest priority
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int minPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        while (counts[min] == 0) {
+            release(min);
+            min++;
+        }
+        return min;
+    }
+
+    // the empty level of priority f is passed, give its stacks to the pool
+    private void release(int f) {
+        if (buckets[f] == null) {
+            return;
+        }
+        if (pooled < POOL_SIZE) {
+            poolBuckets[pooled] = buckets[f];
+            poolSizes[pooled] = sizes[f];
+            pooled++;
+        }
+        buckets[f] = null;
+        sizes[f] = null;
+    }
+
+    /**
+     * Removes all nodes, keeping the allocated buckets for reuse.
+     */
+    public void clear() {
+        for (int f = 0; f <= max; f++) {
+            if (counts[f] != 0) {
+                Arrays.fill(sizes[f], 0);
+                counts[f] = 0;
+            }
+            release(f);
+        }
+        min = 0;
+        max = -1;
+        size = 0;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
@@ -0,0 +1,326 @@
+/****************************************************************************
+ *  Compilation:  javac CachingSolver.java
+ *  Execution:    java CachingSolver [entries] [bytes] < boards.txt
+ *                java CachingSolver -check
+ *  Dependencies: Board.java, Solver.java, algs4.jar
+ *
+ * Solver front-end for repeated queries, which keeps the optimal move
+ * sequences it has found in a bounded least recently used cache.
+ *
+ * Every board on a solution path is indexed, not only the initial board:
+ * the rest of an optimal path is an optimal path from each of its boards,
+ * so a query for any board on a cached path is answered by the suffix of
+ * that path. The index maps a board key to its path and its offset in the
+ * path; paths are shared by all their boards and are dropped when the last
+ * of them is evicted. Boards are identified by their key, as in the Solver's
+ * closed set, together with their shape: boards of different shapes with
+ * the same blocks in the same order have the same key.
+ *
+ * The cache is limited both in entries (indexed boards) and in estimated
+ * bytes, and counts hits, hits in the middle of a path and misses.
+ * Queries may come from several threads; a miss is solved outside the
+ * lock, so concurrent misses do not wait for each other.
+ *
+ * The command line client reads boards in the Solver input format from
+ * standard input and prints the moves of each board as a line of U, D, L
+ * and R, or -1 if it is unsolvable, then the cache counters. With -check
+ * it runs its self-test instead.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CachingSolver {
+
+    // estimated footprint of one index entry: map entry, Key and Ref
+    private static final int ENTRY_BYTES = 104;
+    // estimated footprint of one path without its moves: Path and array headers
+    private static final int PATH_BYTES = 40;
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // board -> position on a cached path, in access order
+    private final LinkedHashMap<Key, Ref> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long suffixHits;
+    private long misses;
+
+    // optimal move sequence shared by the boards on it
+    private static final class Path {
+        private final byte[] moves;
+        private int refs;           // number of index entries on this path
+
+        Path(byte[] moves) {
+            this.moves = moves;
+        }
+    }
+
+    // board key and shape
+    private static final class Key {
+        private final long key;
+        private final int rows;
+        private final int cols;
+
+        Key(Board board) {
+            this.key = board.key();
+            this.rows = board.rows();
+            this.cols = board.cols();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return key == that.key && rows == that.rows && cols == that.cols;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(key) * 31 + rows) * 31 + cols;
+        }
+    }
+
+    // a board's position on a path, the board is offset moves from its start
+    private static final class Ref {
+        private final Path path;
+        private final int offset;
+
+        Ref(Path path, int offset) {
+            this.path = path;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Creates a cache limited in entries and in estimated bytes.
+     *
+     * @param maxEntries maximal number of cached boards
+     * @param maxBytes   maximal estimated size of the cache in bytes
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public CachingSolver(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the moves of the empty block which solve the board, one byte
+     * per move: 'U', 'D', 'L' or 'R', as Solver.moveSequence() does.
+     * Returns null if the board is unsolvable.
+     *
+     * @param board board to solve
+     * @return byte[] new array of the moves
+     * @throws NullPointerException if board is null
+     */
+    public byte[] moveSequence(Board board) {
+        if (board == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (board.isGoal()) {
+            return new byte[0];
+        }
+        if (!board.isSolvable()) {
+            return null;
+        }
+
+        Key key = new Key(board);
+        synchronized (index) {
+            Ref ref = index.get(key);
+            if (ref != null) {
+                hits++;
+                if (ref.offset > 0) {
+                    suffixHits++;
+                }
+                return Arrays.copyOfRange(ref.path.moves, ref.offset, ref.path.moves.length);
+            }
+            misses++;
+        }
+
+        byte[] moves = new Solver(board).moveSequence();
+        synchronized (index) {
+            add(board, moves);
+        }
+        return moves.clone();
+    }
+
+    /**
+     * Returns the minimum number of moves to solve the board
+     * or -1 if board is unsolvable.
+     *
+     * @param board board to solve
+     * @return int minimum number of moves to solve the board
+     * @throws NullPointerException if board is null
+     */
+    public int moves(Board board) {
+        byte[] moves = moveSequence(board);
+        return moves == null ? -1 : moves.length;
+    }
+
+    // indexes every board of a new path but the goal, then evicts
+    private void add(Board initial, byte[] moves) {
+        Path path = new Path(moves);
+        bytes += PATH_BYTES + moves.length;
+
+        Board board = initial;
+        for (int i = 0; i < moves.length; i++) {
+            Key key = new Key(board);
+            if (index.get(key) == null) {       // a path already cached is as good
+                index.put(key, new Ref(path, i));
+                path.refs++;
+                bytes += ENTRY_BYTES;
+            }
+            board = board.move(Board.moveOf((char) moves[i]));
+        }
+        if (path.refs == 0) {
+            bytes -= PATH_BYTES + moves.length;
+        }
+
+        Iterator<Map.Entry<Key, Ref>> eldest = index.entrySet().iterator();
+        while ((index.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            Path evicted = eldest.next().getValue().path;
+            eldest.remove();
+            bytes -= ENTRY_BYTES;
+            if (--evicted.refs == 0) {
+                bytes -= PATH_BYTES + evicted.moves.length;
+            }
+        }
+    }
+
+    /**
+     * Number of queries answered from the cache.
+     * @return long number of hits
+     */
+    public long hits() {
+        synchronized (index) {
+            return hits;
+        }
+    }
+
+    /**
+     * Number of hits on a board in the middle of a cached path, answered by
+     * a suffix of the path; these are also counted by hits().
+     * @return long number of suffix hits
+     */
+    public long suffixHits() {
+        synchronized (index) {
+            return suffixHits;
+        }
+    }
+
+    /**
+     * Number of queries which needed a search. Goal and unsolvable boards
+     * are neither hits nor misses.
+     * @return long number of misses
+     */
+    public long misses() {
+        synchronized (index) {
+            return misses;
+        }
+    }
+
+    /**
+     * Number of cached boards.
+     * @return int number of entries
+     */
+    public int size() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    /**
+     * Estimated size of the cache.
+     * @return long estimated bytes
+     */
+    public long bytes() {
+        synchronized (index) {
+            return bytes;
+        }
+    }
+
+    // solve slider puzzles from standard input
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("-check")) {
+            check();
+            return;
+        }
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        long maxBytes = args.length > 1 ? Long.parseLong(args[1]) : 256L << 20;
+        CachingSolver cache = new CachingSolver(entries, maxBytes);
+
+        StringBuilder s = new StringBuilder();
+        while (!StdIn.isEmpty()) {
+            // "n" or "rows cols" on the first line of each board
+            String line = StdIn.readLine();
+            while (line.trim().isEmpty()) {
+                line = StdIn.readLine();
+            }
+            String[] size = line.trim().split("\\s+");
+            int rows = Integer.parseInt(size[0]);
+            int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+            int[][] blocks = new int[rows][cols];
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    blocks[i][j] = StdIn.readInt();
+            byte[] moves = cache.moveSequence(new Board(blocks));
+
+            s.setLength(0);
+            if (moves == null) {
+                s.append(-1);
+            } else {
+                for (byte move : moves) {
+                    s.append((char) move);
+                }
+            }
+            StdOut.println(s);
+        }
+        StdOut.println("hits = " + cache.hits() + ", suffix hits = " + cache.suffixHits()
+                + ", misses = " + cache.misses() + ", entries = " + cache.size()
+                + ", bytes = " + cache.bytes());
+    }
+
+    // unit testing: boards of different shapes with the same blocks
+    private static void check() {
+        int[][] wide = { { 1, 0, 4, 3 }, { 5, 6, 2, 7 } };
+        int[][] tall = { { 1, 0 }, { 4, 3 }, { 5, 6 }, { 2, 7 } };
+        CachingSolver cache = new CachingSolver(1 << 10, 1 << 20);
+        for (int[][] blocks : new int[][][] { wide, tall, wide, tall }) {
+            Board board = new Board(blocks);
+            int moves = cache.moves(board);
+            if (moves != new Solver(board).moves()) {
+                throw new AssertionError(board.rows() + "x" + board.cols() + ": " + moves);
+            }
+            // every board on the path is a suffix hit of the same shape
+            byte[] path = cache.moveSequence(board);
+            for (int i = 0; i < path.length; i++) {
+                board = board.move(Board.moveOf((char) path[i]));
+                if (cache.moves(board) != path.length - i - 1) {
+                    throw new AssertionError("suffix " + i);
+                }
+            }
+        }
+        if (cache.misses() != 2) {
+            throw new AssertionError("misses = " + cache.misses());
+        }
+        StdOut.println("ok");
+    }
+}
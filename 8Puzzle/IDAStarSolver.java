@@ -0,0 +1,360 @@
+/****************************************************************************
+ *  Compilation:  javac IDAStarSolver.java
+ *  Execution:    java IDAStarSolver input.txt [database.pdb]
+ *  Dependencies: Board.java, PatternDatabase.java, algs4.jar
+ *
+ * Solver for the 8-puzzle problem using iterative deepening A* (IDA*).
+ * A series of depth-first searches is run, each limited to boards with
+ * moves + heuristic within the current bound; the bound is raised to the
+ * smallest value that exceeded it until the goal is reached. The heuristic
+ * is Manhattan distance plus linear conflicts, or the pattern database
+ * value if a database is given and its value is bigger.
+ *
+ * Moves are applied in place on a single block array and undone on the way
+ * back. The Manhattan distance and the pattern database indices are updated
+ * with each move in constant time, linear conflicts are recounted only for
+ * the two lines crossed by the moved block. The move that undoes the
+ * previous one is never tried. Memory is proportional to the length of the
+ * solution rather than to the number of boards generated.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.StdOut;
+import java.io.File;
+import java.util.Arrays;
+
+
+public class IDAStarSolver {
+
+    private static final int FOUND = -1;
+
+    private final boolean solvable;
+    private int moves = -1;
+    private Queue<Board> solution;
+
+    // search state, released when the search is over
+    private int rows;           // board size
+    private int cols;
+    private int[] blocks;       // blocks of the board being searched
+    private int blank;          // index of the empty block
+    private int[][] adjacent;   // adjacent[i] = indices next to index i
+    private int[][] distance;   // distance[block][i] = Manhattan distance
+    private int[] path;         // path[k] = blank index after move k
+    private int[] conflicts;    // linear conflicts of rows, then of columns
+    private int conflictSum;    // sum of conflicts
+    private int[] goals;        // scratch arrays for counting conflicts
+    private int[] scratch;
+    private PatternDatabase pdb;    // may be null
+    private int[] pdbIndex;         // index of each group placement
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using the IDA* algorithm
+     *
+     * @param initial board for solving
+     */
+    public IDAStarSolver(Board initial) {
+        this(initial, null);
+    }
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using the IDA* algorithm guided by the pattern database
+     *
+     * @param initial board for solving
+     * @param pdb     pattern database for boards of this dimension, or null
+     * @throws IllegalArgumentException if the database is for other dimension
+     */
+    public IDAStarSolver(Board initial, PatternDatabase pdb) {
+        if (pdb != null && (pdb.dimension() != initial.rows()
+                || pdb.dimension() != initial.cols())) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
+
+        rows = initial.rows();
+        cols = initial.cols();
+        blocks = new int[rows * cols];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = initial.blockAt(i);
+        }
+        blank = initial.blank();
+        adjacent = adjacencyTable(rows, cols);
+        distance = distanceTable(rows, cols);
+        path = new int[16];
+
+        goals = new int[Math.max(rows, cols)];
+        scratch = new int[goals.length];
+        conflicts = new int[rows + cols];
+        for (int line = 0; line < conflicts.length; line++) {
+            conflicts[line] = lineConflict(line);
+            conflictSum += conflicts[line];
+        }
+
+        this.pdb = pdb;
+        if (pdb != null) {
+            pdbIndex = new int[pdb.groups()];
+            for (int i = 0; i < blocks.length; i++) {
+                int block = blocks[i];
+                if (block != 0 && pdb.groupOf(block) >= 0) {
+                    pdbIndex[pdb.groupOf(block)] += i * pdb.weightOf(block);
+                }
+            }
+        }
+
+        int md = initial.manhattan();
+        int bound = heuristic(md);
+        while (true) {
+            int t = search(0, bound, md, -1);
+            if (t == FOUND) {
+                break;
+            }
+            bound = t;
+        }
+
+        solution = new Queue<>();
+        Board board = initial;
+        solution.enqueue(board);
+        for (int k = 0; k < moves; k++) {
+            board = board.moveBlank(path[k]);
+            solution.enqueue(board);
+        }
+
+        blocks = null;
+        adjacent = null;
+        distance = null;
+        path = null;
+        conflicts = null;
+        goals = null;
+        scratch = null;
+        this.pdb = null;
+        pdbIndex = null;
+    }
+
+    /*
+     * Depth-first search below a board reached in g moves, with Manhattan
+     * distance md and the empty block coming from index previous.
+     * Returns FOUND if the goal is reached, the smallest f-value over the
+     * bound otherwise.
+     */
+    private int search(int g, int bound, int md, int previous) {
+        int f = g + heuristic(md);
+        if (f > bound) {
+            return f;
+        }
+        if (md == 0) {
+            moves = g;
+            return FOUND;
+        }
+        if (g == path.length) {
+            path = Arrays.copyOf(path, 2 * g);
+        }
+
+        int min = Integer.MAX_VALUE;
+        int from = blank;
+        for (int target : adjacent[from]) {
+            if (target == previous) {
+                continue;
+            }
+
+            // slide the block at target into the empty position
+            int block = blocks[target];
+            int childMd = md - distance[block][target] + distance[block][from];
+            blocks[from] = block;
+            blocks[target] = 0;
+            blank = target;
+            path[g] = target;
+
+            // a horizontal move changes two columns, a vertical one two rows
+            int lineA;
+            int lineB;
+            if (target / cols == from / cols) {
+                lineA = rows + target % cols;
+                lineB = rows + from % cols;
+            } else {
+                lineA = target / cols;
+                lineB = from / cols;
+            }
+            int oldA = conflicts[lineA];
+            int oldB = conflicts[lineB];
+            conflicts[lineA] = lineConflict(lineA);
+            conflicts[lineB] = lineConflict(lineB);
+            conflictSum += conflicts[lineA] - oldA + conflicts[lineB] - oldB;
+
+            int group = -1;
+            int shift = 0;
+            if (pdb != null) {
+                group = pdb.groupOf(block);
+                if (group >= 0) {
+                    shift = (from - target) * pdb.weightOf(block);
+                    pdbIndex[group] += shift;
+                }
+            }
+
+            int t = search(g + 1, bound, childMd, from);
+
+            // undo the move
+            blocks[target] = block;
+            blocks[from] = 0;
+            blank = from;
+            conflictSum += oldA - conflicts[lineA] + oldB - conflicts[lineB];
+            conflicts[lineA] = oldA;
+            conflicts[lineB] = oldB;
+            if (group >= 0) {
+                pdbIndex[group] -= shift;
+            }
+
+            if (t == FOUND) {
+                return FOUND;
+            }
+            if (t < min) {
+                min = t;
+            }
+        }
+        return min;
+    }
+
+    // admissible estimate of the moves left, given the Manhattan distance
+    private int heuristic(int md) {
+        int h = md + conflictSum;
+        if (pdb != null) {
+            int sum = 0;
+            for (int group = 0; group < pdbIndex.length; group++) {
+                sum += pdb.lookup(group, pdbIndex[group]);
+            }
+            if (sum > h) {
+                h = sum;
+            }
+        }
+        return h;
+    }
+
+    // linear conflicts of a row (line < rows) or a column (line >= rows)
+    private int lineConflict(int line) {
+        int count = 0;
+        if (line < rows) {
+            for (int j = 0; j < cols; j++) {
+                int block = blocks[line * cols + j];
+                if (block != 0 && (block - 1) / cols == line) {
+                    goals[count++] = (block - 1) % cols;
+                }
+            }
+        } else {
+            int j = line - rows;
+            for (int i = 0; i < rows; i++) {
+                int block = blocks[i * cols + j];
+                if (block != 0 && (block - 1) % cols == j) {
+                    goals[count++] = (block - 1) / cols;
+                }
+            }
+        }
+        return Board.lineConflict(goals, count, scratch);
+    }
+
+    private static int[][] adjacencyTable(int rows, int cols) {
+        int[][] table = new int[rows * cols][];
+        for (int i = 0; i < rows * cols; i++) {
+            int x = i / cols;
+            int y = i % cols;
+            int count = (x > 0 ? 1 : 0) + (x < rows - 1 ? 1 : 0)
+                    + (y > 0 ? 1 : 0) + (y < cols - 1 ? 1 : 0);
+            int[] targets = new int[count];
+            int k = 0;
+            if (x > 0) targets[k++] = i - cols;
+            if (x < rows - 1) targets[k++] = i + cols;
+            if (y > 0) targets[k++] = i - 1;
+            if (y < cols - 1) targets[k++] = i + 1;
+            table[i] = targets;
+        }
+        return table;
+    }
+
+    private static int[][] distanceTable(int rows, int cols) {
+        int cells = rows * cols;
+        int[][] table = new int[cells][cells];
+        for (int block = 1; block < cells; block++) {
+            int gx = (block - 1) / cols;
+            int gy = (block - 1) % cols;
+            for (int i = 0; i < cells; i++) {
+                table[block][i] = Math.abs(i / cols - gx) + Math.abs(i % cols - gy);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Checks if this board is solvable.
+     *
+     * @return true  if board is solvable
+     *         false otherwise
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Returns the minimum number of moves to solve the initial board
+     * or -1 if board is unsolvable.
+     *
+     * @return int minimum number of moves to solve the initial board
+     */
+    public int moves() {
+        return moves;
+    }
+
+    /**
+     * Returns the sequence of Boards from the initial board to the solution.
+     * Returns null if initial board unsolvable.
+     *
+     * @return Iterable object to loop through the solution chain
+     */
+    public Iterable<Board> solution() {
+        return solution;
+    }
+
+    // solve a slider puzzle (given below)
+    public static void main(String[] args) {
+
+        // create initial board from file, "n" or "rows cols" on the first line
+        In in = new In(args[0]);
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = in.readInt();
+        Board initial = new Board(blocks);
+
+        // solve the puzzle, with the pattern database if one is given
+        PatternDatabase pdb = null;
+        if (args.length > 1) {
+            pdb = PatternDatabase.load(new File(args[1]));
+        }
+        IDAStarSolver solver = new IDAStarSolver(initial, pdb);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
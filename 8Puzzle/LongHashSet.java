@@ -0,0 +1,174 @@
+/****************************************************************************
+ *  Compilation:  javac LongHashSet.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Set of primitive long keys using open addressing with linear probing.
+ *  Keys are stored in a single long array, there is no boxing and no entry
+ *  object per key. Zero marks an empty slot, so the key 0 is tracked by
+ *  a separate flag. The table doubles when it gets half full.
+ *
+ *  clear() empties the table in time proportional to its capacity, but a
+ *  table less than 1/8 full when cleared, left over from an unusually big
+ *  use, is replaced by one sized for what it held. A set reused for many
+ *  searches thus pays for the last search only, and does not keep the
+ *  largest table it ever needed.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Arrays;
+
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int SHRINK_LOAD = 8;   // clear() shrinks tables less than 1/8 full
+
+    private long[] keys;        // power of two sized table, 0 is an empty slot
+    private int mask;           // keys.length - 1
+    private int size;           // number of keys except 0
+    private boolean hasZero;    // is 0 in the set
+
+    /**
+     * Initializes an empty set.
+     */
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty set sized for the expected number of keys.
+     *
+     * @param expected number of keys expected to be added
+     */
+    public LongHashSet(int expected) {
+        int capacity = capacity(expected);
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    // table size for the expected number of keys, at most half full
+    private static int capacity(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Number of keys in the set.
+     *
+     * @return int number of keys in the set
+     */
+    public int size() {
+        return hasZero ? size + 1 : size;
+    }
+
+    /**
+     * Checks is the set empty.
+     *
+     * @return true  if set is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Checks if the set contains the key.
+     *
+     * @param key the key to look for
+     * @return true  if the set contains the key
+     *         false otherwise
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds the key to the set if it is not already there.
+     *
+     * @param key the key to add
+     * @return true  if the key was added
+     *         false if the set already contained the key
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int i = slot(key);
+        for (long k = keys[i]; k != 0; k = keys[i]) {
+            if (k == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size > keys.length >>> 1) {
+            resize(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all keys, keeping the allocated table for reuse unless it is
+     * less than 1/8 full; then it is replaced by a table sized for twice
+     * the keys it held.
+     */
+    public void clear() {
+        if (keys.length > MIN_CAPACITY && size < keys.length / SHRINK_LOAD) {
+            int capacity = capacity(2 * size);
+            keys = new long[capacity];
+            mask = capacity - 1;
+        } else {
+            Arrays.fill(keys, 0);
+        }
+        size = 0;
+        hasZero = false;
+    }
+
+    private void resize(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int i = slot(key);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    // board keys have little entropy in the low bits, mix before masking
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
@@ -0,0 +1,189 @@
+/****************************************************************************
+ *  Compilation:  javac LongIntHashMap.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Map from primitive long keys to int values using open addressing with
+ *  linear probing, the map counterpart of LongHashSet. Keys and values are
+ *  kept in two parallel arrays. Zero marks an empty key slot, so the value
+ *  of the key 0 is kept in separate fields. The table doubles when it gets
+ *  half full, and clear() shrinks a table less than 1/8 full, as in
+ *  LongHashSet.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Arrays;
+
+public class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int SHRINK_LOAD = 8;   // clear() shrinks tables less than 1/8 full
+
+    private long[] keys;        // power of two sized table, 0 is an empty slot
+    private int[] values;       // values[i] = value of keys[i]
+    private int mask;           // keys.length - 1
+    private int size;           // number of keys except 0
+    private boolean hasZero;    // is 0 in the map
+    private int zeroValue;      // value of 0
+
+    /**
+     * Initializes an empty map.
+     */
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty map sized for the expected number of keys.
+     *
+     * @param expected number of keys expected to be added
+     */
+    public LongIntHashMap(int expected) {
+        int capacity = capacity(expected);
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // table size for the expected number of keys, at most half full
+    private static int capacity(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Number of keys in the map.
+     *
+     * @return int number of keys in the map
+     */
+    public int size() {
+        return hasZero ? size + 1 : size;
+    }
+
+    /**
+     * Checks is the map empty.
+     *
+     * @return true  if map is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Checks if the map contains the key.
+     *
+     * @param key the key to look for
+     * @return true  if the map contains the key
+     *         false otherwise
+     */
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        return keys[find(key)] != 0;
+    }
+
+    /**
+     * Returns the value of the key.
+     *
+     * @param key     the key to look for
+     * @param missing value to return if the map does not contain the key
+     * @return int value of the key, missing if there is none
+     */
+    public int get(long key, int missing) {
+        if (key == 0) {
+            return hasZero ? zeroValue : missing;
+        }
+        int i = find(key);
+        return keys[i] != 0 ? values[i] : missing;
+    }
+
+    /**
+     * Sets the value of the key.
+     *
+     * @param key   the key
+     * @param value the new value of the key
+     */
+    public void put(long key, int value) {
+        if (key == 0) {
+            hasZero = true;
+            zeroValue = value;
+            return;
+        }
+        int i = find(key);
+        values[i] = value;
+        if (keys[i] == 0) {
+            keys[i] = key;
+            if (++size > keys.length >>> 1) {
+                resize(keys.length << 1);
+            }
+        }
+    }
+
+    /**
+     * Removes all keys, keeping the allocated table for reuse unless it is
+     * less than 1/8 full; then it is replaced by a table sized for twice
+     * the keys it held.
+     */
+    public void clear() {
+        if (keys.length > MIN_CAPACITY && size < keys.length / SHRINK_LOAD) {
+            int capacity = capacity(2 * size);
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        } else {
+            Arrays.fill(keys, 0);
+        }
+        size = 0;
+        hasZero = false;
+    }
+
+    // slot holding the key, or the empty slot where it would go
+    private int find(long key) {
+        int i = slot(key);
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = slot(key);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // board keys have little entropy in the low bits, mix before masking
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
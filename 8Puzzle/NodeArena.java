@@ -0,0 +1,214 @@
+/****************************************************************************
+ *  Compilation:  javac NodeArena.java
+ *  Execution:    none
+ *  Dependencies: Board.java
+ *
+ *  Storage for A* search nodes as parallel primitive arrays. A node is an
+ *  int index; for each node the arena holds the board key, the number of
+ *  moves g, the heuristic h and the index of the parent node, 20 bytes in
+ *  total and no object per node. Boards of at most 16 blocks are rebuilt
+ *  from their packed key when needed. Bigger boards have hashed keys, which
+ *  cannot be unpacked, so for them the arena also keeps a Board column.
+ *
+ *  The arrays grow in fixed-size chunks: growing never copies the nodes
+ *  already stored, and no single huge array has to be allocated.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Arrays;
+
+public class NodeArena {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;   // nodes per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] keys = new long[0][];
+    private int[][] parents = new int[0][];
+    private int[][] moves = new int[0][];
+    private int[][] heuristics = new int[0][];
+    private Board[][] boards = new Board[0][];  // allocated for boards of more than 16 blocks
+
+    private int rows;           // board size
+    private int cols;
+    private boolean packed;     // are the keys packed boards
+    private int size;
+    private int chunks;         // number of allocated chunks
+
+    /**
+     * Initializes an empty arena for boards of the given size.
+     *
+     * @param rows number of rows of the boards
+     * @param cols number of columns of the boards
+     */
+    public NodeArena(int rows, int cols) {
+        reset(rows, cols);
+    }
+
+    /**
+     * Removes all nodes and prepares the arena for boards of the given size.
+     * Allocated chunks are kept for reuse.
+     *
+     * @param rows number of rows of the boards
+     * @param cols number of columns of the boards
+     */
+    public void reset(int rows, int cols) {
+        // let go of the boards of the previous search
+        for (int c = 0; c * CHUNK_SIZE < size; c++) {
+            if (boards[c] != null) {
+                Arrays.fill(boards[c], 0, Math.min(CHUNK_SIZE, size - c * CHUNK_SIZE), null);
+            }
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.packed = rows * cols <= 16;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of nodes in the arena.
+     * @return the number of nodes in the arena
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Does the arena rebuild boards from keys? If so nodes can be added by
+     * key alone.
+     * @return true  if keys are packed boards
+     *         false if the arena keeps the boards
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Adds a node of a packed arena by the key of its board.
+     *
+     * @param key    packed key of the board
+     * @param parent index of the parent node, -1 for the root
+     * @param g      number of moves from the root
+     * @param h      heuristic value of the board
+     * @return index of the new node
+     * @throws IllegalStateException if the arena is not packed
+     */
+    public int add(long key, int parent, int g, int h) {
+        if (!packed) {
+            throw new java.lang.IllegalStateException();
+        }
+        if (size == chunks * CHUNK_SIZE) {
+            grow();
+        }
+        int c = size >>> CHUNK_BITS;
+        int i = size & CHUNK_MASK;
+        keys[c][i] = key;
+        parents[c][i] = parent;
+        moves[c][i] = g;
+        heuristics[c][i] = h;
+        return size++;
+    }
+
+    /**
+     * Adds a node.
+     *
+     * @param board  board of the node
+     * @param parent index of the parent node, -1 for the root
+     * @param g      number of moves from the root
+     * @param h      heuristic value of the board
+     * @return index of the new node
+     */
+    public int add(Board board, int parent, int g, int h) {
+        if (size == chunks * CHUNK_SIZE) {
+            grow();
+        }
+        int c = size >>> CHUNK_BITS;
+        int i = size & CHUNK_MASK;
+        keys[c][i] = board.key();
+        parents[c][i] = parent;
+        moves[c][i] = g;
+        heuristics[c][i] = h;
+        if (!packed) {
+            if (boards[c] == null) {
+                boards[c] = new Board[CHUNK_SIZE];
+            }
+            boards[c][i] = board;
+        }
+        return size++;
+    }
+
+    private void grow() {
+        if (chunks == keys.length) {
+            int capacity = Math.max(8, 2 * chunks);
+            keys = Arrays.copyOf(keys, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+            heuristics = Arrays.copyOf(heuristics, capacity);
+            boards = Arrays.copyOf(boards, capacity);
+        }
+        keys[chunks] = new long[CHUNK_SIZE];
+        parents[chunks] = new int[CHUNK_SIZE];
+        moves[chunks] = new int[CHUNK_SIZE];
+        heuristics[chunks] = new int[CHUNK_SIZE];
+        chunks++;
+    }
+
+    /**
+     * Key of the node's board.
+     * @param node node index
+     * @return long board key
+     */
+    public long key(int node) {
+        return keys[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    /**
+     * Parent of the node.
+     * @param node node index
+     * @return int index of the parent node, -1 for the root
+     */
+    public int parent(int node) {
+        return parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    /**
+     * Number of moves from the root to the node.
+     * @param node node index
+     * @return int number of moves
+     */
+    public int moves(int node) {
+        return moves[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    /**
+     * Heuristic value of the node's board.
+     * @param node node index
+     * @return int heuristic value
+     */
+    public int heuristic(int node) {
+        return heuristics[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    /**
+     * Board of the node, rebuilt from its key if the key is packed.
+     * @param node node index
+     * @return the board
+     */
+    public Board board(int node) {
+        if (packed) {
+            return Board.fromKey(key(node), rows, cols);
+        }
+        return boards[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
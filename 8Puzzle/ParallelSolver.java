@@ -0,0 +1,374 @@
+/****************************************************************************
+ *  Compilation:  javac ParallelSolver.java
+ *  Execution:    java ParallelSolver input.txt [threads]
+ *  Dependencies: Board.java, LongIntHashMap.java, algs4.jar
+ *
+ * Multi-threaded solver for the 8-puzzle problem using hash distributed
+ * A* (HDA*). Every board is owned by one worker thread, chosen by a hash of
+ * the board key. Each worker has its own open list and its own map of the
+ * best known number of moves to its boards, and nothing else is shared
+ * but the lock-free inboxes. A worker sends each board it generates to
+ * the inbox of the board's owner, so duplicates always meet in one map.
+ *
+ * Workers do not stop at the first goal found. A goal only sets the
+ * incumbent solution, and nodes with moves + Manhattan distance not below
+ * its length are dropped from then on. The search ends when no worker has
+ * a better node left and no board is in transit, so the incumbent is then
+ * optimal. In-transit boards and active workers are counted in a single
+ * counter: a message is counted before it is sent, and an idle worker
+ * counts itself active before it discounts the message it received, so the
+ * counter only reaches zero when all work is done.
+ *
+ * An idle worker spins briefly on its inbox, then parks. A sender unparks
+ * the owner of a board after putting it in a parked owner's inbox, and
+ * the end of the search unparks all workers.
+ *
+ * A worker that fails stops the others, and the constructor rethrows the
+ * first failure once all workers have stopped.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.MinPQ;
+import edu.princeton.cs.algs4.Stack;
+import edu.princeton.cs.algs4.StdOut;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+
+public class ParallelSolver {
+
+    private static final int IDLE_SPINS = 100;              // spins of an idle worker before it parks
+    private static final long PARK_NANOS = 1_000_000L;      // longest park between inbox checks
+
+    private final boolean solvable;
+    private int moves = -1;
+    private Stack<Board> solution;
+
+    // search state shared by the workers, released when the search is over
+    private Worker[] workers;
+    private AtomicLong work;                    // active workers + boards in transit
+    private AtomicReference<SearchNode> incumbent;
+    private AtomicReference<Throwable> failure;     // first exception of a worker
+    private volatile boolean done;
+
+    /*
+     * Immutable search node, safe to pass between threads through the
+     * inboxes.
+     */
+    private static final class SearchNode implements Comparable<SearchNode> {
+
+        private final Board board;
+        private final SearchNode parent;
+        private final int moves;
+        private final int priority;     // moves + Manhattan distance
+
+        SearchNode(Board board, SearchNode parent) {
+            this.board = board;
+            this.parent = parent;
+            this.moves = parent == null ? 0 : parent.moves + 1;
+            this.priority = moves + board.manhattan();
+        }
+
+        /*
+         * Defines SearchNode ordering by priority; ties are solved in favour
+         * of deeper nodes, which are closer to the goal.
+         */
+        @Override
+        public int compareTo(SearchNode that) {
+            if (this.priority != that.priority) {
+                return this.priority < that.priority ? -1 : 1;
+            }
+            return Integer.compare(that.moves, this.moves);
+        }
+    }
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using HDA* on all available processors
+     *
+     * @param initial board for solving
+     */
+    public ParallelSolver(Board initial) {
+        this(initial, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using HDA* with the given number of worker threads
+     *
+     * @param initial board for solving
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads is not positive
+     * @throws RuntimeException or Error thrown by a worker thread
+     */
+    public ParallelSolver(Board initial, int threads) {
+        if (threads <= 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
+
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+        }
+        work = new AtomicLong(threads);         // every worker starts active
+        incumbent = new AtomicReference<>();
+        failure = new AtomicReference<>();
+
+        SearchNode root = new SearchNode(initial, null);
+        workers[owner(initial.key())].receive(root);
+
+        for (int i = 0; i < threads; i++) {
+            workers[i].thread = new Thread(workers[i], "hda-worker-" + i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                finish();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while solving", e);
+            }
+        }
+
+        Throwable e = failure.get();
+        if (e != null) {
+            workers = null;
+            work = null;
+            incumbent = null;
+            failure = null;
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IllegalStateException(e);
+        }
+
+        SearchNode node = incumbent.get();
+        moves = node.moves;
+        solution = new Stack<>();
+        for (; node != null; node = node.parent) {
+            solution.push(node.board);
+        }
+
+        workers = null;
+        work = null;
+        incumbent = null;
+        failure = null;
+    }
+
+    // worker owning the board with the given key
+    private int owner(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % workers.length);
+    }
+
+    // length of the best solution found so far
+    private int incumbentMoves() {
+        SearchNode best = incumbent.get();
+        return best == null ? Integer.MAX_VALUE : best.moves;
+    }
+
+    // ends the search and wakes up the parked workers to see it
+    private void finish() {
+        done = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    private void offerIncumbent(SearchNode goal) {
+        SearchNode best = incumbent.get();
+        while ((best == null || goal.moves < best.moves)
+                && !incumbent.compareAndSet(best, goal)) {
+            best = incumbent.get();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final MinPQ<SearchNode> open = new MinPQ<>();
+        private final LongIntHashMap best = new LongIntHashMap();
+        private final ConcurrentLinkedQueue<SearchNode> inbox =
+                new ConcurrentLinkedQueue<>();
+        private Thread thread;                  // set before any worker starts
+        private volatile boolean parked;        // set before the inbox is checked a last time
+
+        @Override
+        public void run() {
+            try {
+                search();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                // the work counter of a failed worker never settles, stop the others
+                finish();
+            }
+        }
+
+        private void search() {
+            boolean active = true;
+            int spins = 0;
+            while (!done) {
+                SearchNode message;
+                while ((message = inbox.poll()) != null) {
+                    if (!active) {
+                        work.incrementAndGet();
+                        active = true;
+                    }
+                    receive(message);
+                    work.decrementAndGet();
+                }
+
+                if (!open.isEmpty() && open.min().priority < incumbentMoves()) {
+                    expand(open.delMin());
+                } else if (active) {
+                    // nothing useful left here, every remaining node is pruned
+                    active = false;
+                    spins = 0;
+                    if (work.decrementAndGet() == 0) {
+                        finish();
+                    }
+                } else if (spins < IDLE_SPINS) {
+                    spins++;
+                    Thread.onSpinWait();
+                } else {
+                    // a sender checks parked after adding to the inbox, so
+                    // either it sees the flag or this check sees its board
+                    parked = true;
+                    if (inbox.isEmpty() && !done) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        // takes ownership of a node if it is better than what is known
+        private void receive(SearchNode node) {
+            if (node.priority >= incumbentMoves()) {
+                return;
+            }
+            long key = node.board.key();
+            if (node.moves >= best.get(key, Integer.MAX_VALUE)) {
+                return;
+            }
+            best.put(key, node.moves);
+            if (node.board.isGoal()) {
+                offerIncumbent(node);
+            } else {
+                open.insert(node);
+            }
+        }
+
+        private void expand(SearchNode node) {
+            // a better path to this board has arrived since it was queued
+            if (node.moves > best.get(node.board.key(), Integer.MAX_VALUE)) {
+                return;
+            }
+
+            long parentKey = node.parent == null ? 0 : node.parent.board.key();
+            for (Board board : node.board.neighbors()) {
+                long key = board.key();
+                if (node.parent != null && key == parentKey) {
+                    continue;
+                }
+                SearchNode child = new SearchNode(board, node);
+                if (child.priority >= incumbentMoves()) {
+                    continue;
+                }
+                Worker target = workers[owner(key)];
+                if (target == this) {
+                    receive(child);
+                } else {
+                    work.incrementAndGet();
+                    target.inbox.add(child);
+                    if (target.parked) {
+                        LockSupport.unpark(target.thread);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if this board is solvable.
+     *
+     * @return true  if board is solvable
+     *         false otherwise
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Returns the minimum number of moves to solve the initial board
+     * or -1 if board is unsolvable.
+     *
+     * @return int minimum number of moves to solve the initial board
+     */
+    public int moves() {
+        return moves;
+    }
+
+    /**
+     * Returns the sequence of Boards from the initial board to the solution.
+     * Returns null if initial board unsolvable.
+     *
+     * @return Iterable object to loop through the solution chain
+     */
+    public Iterable<Board> solution() {
+        return solution;
+    }
+
+    // solve a slider puzzle (given below)
+    public static void main(String[] args) {
+
+        // create initial board from file, "n" or "rows cols" on the first line
+        In in = new In(args[0]);
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = in.readInt();
+        Board initial = new Board(blocks);
+
+        // solve the puzzle
+        int threads = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        ParallelSolver solver = new ParallelSolver(initial, threads);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/****************************************************************************
+ *  Compilation:  javac PatternDatabase.java
+ *  Execution:    java PatternDatabase n output.pdb
+ *  Dependencies: Board.java
+ *
+ *  Additive disjoint pattern database heuristic for the N-puzzle.
+ *  The blocks are split into disjoint groups. For each group a table holds
+ *  the number of moves of the group's own blocks needed to bring them from
+ *  any placement to their goal positions. Other blocks are ignored, and so
+ *  is the empty block: a group block may move to any adjacent position
+ *  not taken by another block of the group. Every move of a real solution
+ *  moves a block of exactly one group, so the sum of the group values is
+ *  an admissible heuristic, and it dominates Manhattan distance.
+ *
+ *  Tables are filled by a backward breadth-first search from the goal
+ *  placement and indexed by the positions of the group blocks, one byte per
+ *  entry. They can be saved to a file and memory-mapped back, so a program
+ *  does not have to repeat the search at startup.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class PatternDatabase {
+
+    private static final int MAGIC = 0x50444231;        // "PDB1"
+    private static final int UNSEEN = 0xFF;
+
+    private final int sizeOfSide;
+    private final int[][] groups;       // blocks of each group
+    private final int[] groupOf;        // groupOf[block] = its group, -1 if none
+    private final int[] weightOf;       // weightOf[block] = index weight of block
+    private final ByteBuffer[] tables;  // tables[g][index] = moves of group g
+
+    /**
+     * Builds the database for the given disjoint groups of blocks
+     * on an n-by-n board.
+     *
+     * @param n      size of the board side
+     * @param groups disjoint groups of blocks 1 .. n*n-1
+     * @throws IllegalArgumentException if a block is out of range or used
+     *         twice, or a table would not fit in an array
+     */
+    public PatternDatabase(int n, int[][] groups) {
+        this.sizeOfSide = n;
+        this.groups = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++) {
+            this.groups[g] = groups[g].clone();
+        }
+        groupOf = new int[n * n];
+        weightOf = new int[n * n];
+        index(n, this.groups, groupOf, weightOf);
+
+        tables = new ByteBuffer[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            tables[g] = ByteBuffer.wrap(search(this.groups[g]));
+        }
+    }
+
+    // database over tables read from a file
+    private PatternDatabase(int n, int[][] groups, ByteBuffer[] tables) {
+        this.sizeOfSide = n;
+        this.groups = groups;
+        this.tables = tables;
+        groupOf = new int[n * n];
+        weightOf = new int[n * n];
+        index(n, groups, groupOf, weightOf);
+    }
+
+    /**
+     * Builds the 6-6-3 partitioned database for the 15-puzzle.
+     *
+     * @return database for 4-by-4 boards
+     */
+    public static PatternDatabase fifteenPuzzle() {
+        return new PatternDatabase(4, new int[][] {
+                { 1, 5, 6, 9, 10, 13 },
+                { 7, 8, 11, 12, 14, 15 },
+                { 2, 3, 4 }
+        });
+    }
+
+    /*
+     * Fills block to group and block to weight maps. The index of a group
+     * placement is the sum of position * weight over its blocks, weights are
+     * powers of n*n.
+     */
+    private static void index(int n, int[][] groups, int[] groupOf, int[] weightOf) {
+        Arrays.fill(groupOf, -1);
+        for (int g = 0; g < groups.length; g++) {
+            long weight = 1;
+            for (int block : groups[g]) {
+                if (block <= 0 || block >= n * n || groupOf[block] >= 0) {
+                    throw new java.lang.IllegalArgumentException("bad block " + block);
+                }
+                if (weight * n * n > Integer.MAX_VALUE) {
+                    throw new java.lang.IllegalArgumentException("group too big");
+                }
+                groupOf[block] = g;
+                weightOf[block] = (int) weight;
+                weight *= n * n;
+            }
+        }
+    }
+
+    /*
+     * Backward breadth-first search over the placements of one group.
+     * Each level is found by scanning the table for entries of the previous
+     * level, which needs no queue besides the table itself.
+     */
+    private byte[] search(int[] group) {
+        int cells = sizeOfSide * sizeOfSide;
+        int k = group.length;
+        int size = 1;
+        for (int i = 0; i < k; i++) {
+            size *= cells;
+        }
+
+        byte[] table = new byte[size];
+        Arrays.fill(table, (byte) UNSEEN);
+
+        int goal = 0;
+        for (int i = k - 1; i >= 0; i--) {
+            goal = goal * cells + (group[i] - 1);
+        }
+        table[goal] = 0;
+
+        int[] positions = new int[k];
+        boolean found = true;
+        for (int depth = 0; found; depth++) {
+            found = false;
+            for (int index = 0; index < size; index++) {
+                if ((table[index] & 0xFF) != depth) {
+                    continue;
+                }
+
+                int rest = index;
+                for (int i = 0; i < k; i++) {
+                    positions[i] = rest % cells;
+                    rest /= cells;
+                }
+
+                int weight = 1;
+                for (int i = 0; i < k; i++, weight *= cells) {
+                    int p = positions[i];
+                    int x = p / sizeOfSide;
+                    int y = p % sizeOfSide;
+                    if (x > 0) found |= visit(table, positions, index, weight, p, p - sizeOfSide, depth);
+                    if (x < sizeOfSide - 1) found |= visit(table, positions, index, weight, p, p + sizeOfSide, depth);
+                    if (y > 0) found |= visit(table, positions, index, weight, p, p - 1, depth);
+                    if (y < sizeOfSide - 1) found |= visit(table, positions, index, weight, p, p + 1, depth);
+                }
+            }
+        }
+        return table;
+    }
+
+    // records the placement after moving a block from p to q, if q is free
+    private static boolean visit(byte[] table, int[] positions, int index,
+                                 int weight, int p, int q, int depth) {
+        for (int position : positions) {
+            if (position == q) {
+                return false;
+            }
+        }
+        int next = index + (q - p) * weight;
+        if ((table[next] & 0xFF) != UNSEEN) {
+            return false;
+        }
+        table[next] = (byte) (depth + 1);
+        return true;
+    }
+
+    /**
+     * Size of the board side this database is built for.
+     * @return size of the board side
+     */
+    public int dimension() {
+        return sizeOfSide;
+    }
+
+    /**
+     * Sum of the group values for the given board.
+     *
+     * @param board board of the same dimension
+     * @return int lower bound on the number of moves to solve the board
+     * @throws IllegalArgumentException if the board has other dimension
+     */
+    public int heuristic(Board board) {
+        if (board.rows() != sizeOfSide || board.cols() != sizeOfSide) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        int[] indices = new int[groups.length];
+        for (int i = 0; i < sizeOfSide * sizeOfSide; i++) {
+            int block = board.blockAt(i);
+            if (block != 0 && groupOf[block] >= 0) {
+                indices[groupOf[block]] += i * weightOf[block];
+            }
+        }
+        int sum = 0;
+        for (int g = 0; g < groups.length; g++) {
+            sum += lookup(g, indices[g]);
+        }
+        return sum;
+    }
+
+    /**
+     * Number of groups.
+     * @return int number of groups
+     */
+    int groups() {
+        return groups.length;
+    }
+
+    /**
+     * Group of the block.
+     * @param block block 1 .. n*n-1
+     * @return int group of the block, -1 if it belongs to none
+     */
+    int groupOf(int block) {
+        return groupOf[block];
+    }
+
+    /**
+     * Weight of the block in the index of its group, moving the block by
+     * d positions changes the group index by d * weight.
+     * @param block block 1 .. n*n-1
+     * @return int weight of the block
+     */
+    int weightOf(int block) {
+        return weightOf[block];
+    }
+
+    /**
+     * Value of the group placement with the given index.
+     * @param group group number
+     * @param index index of the placement of the group blocks
+     * @return int moves of the group blocks to their goal positions
+     */
+    int lookup(int group, int index) {
+        return tables[group].get(index) & 0xFF;
+    }
+
+    /**
+     * Writes the database to a file.
+     *
+     * @param file file to write
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void save(File file) {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(sizeOfSide);
+            out.writeInt(groups.length);
+            for (int[] group : groups) {
+                out.writeInt(group.length);
+                for (int block : group) {
+                    out.writeInt(block);
+                }
+            }
+            for (ByteBuffer table : tables) {
+                ByteBuffer view = table.duplicate();
+                view.clear();
+                byte[] chunk = new byte[1 << 16];
+                while (view.hasRemaining()) {
+                    int length = Math.min(chunk.length, view.remaining());
+                    view.get(chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps a database written by save() into memory. The tables are read
+     * directly from the mapped file.
+     *
+     * @param file file written by save()
+     * @return the database
+     * @throws IllegalArgumentException if the file is not a database
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static PatternDatabase load(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC) {
+                throw new java.lang.IllegalArgumentException("not a pattern database");
+            }
+            int n = mapped.getInt();
+            int[][] groups = new int[mapped.getInt()][];
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = new int[mapped.getInt()];
+                for (int i = 0; i < groups[g].length; i++) {
+                    groups[g][i] = mapped.getInt();
+                }
+            }
+            ByteBuffer[] tables = new ByteBuffer[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                int size = 1;
+                for (int i = 0; i < groups[g].length; i++) {
+                    size *= n * n;
+                }
+                tables[g] = mapped.slice(mapped.position(), size);
+                mapped.position(mapped.position() + size);
+            }
+            return new PatternDatabase(n, groups, tables);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // builds the standard database for 3x3 or 4x4 boards and saves it
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        PatternDatabase pdb;
+        if (n == 4) {
+            pdb = fifteenPuzzle();
+        } else if (n == 3) {
+            pdb = new PatternDatabase(3, new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } });
+        } else {
+            throw new java.lang.IllegalArgumentException("only 3 or 4 supported");
+        }
+        pdb.save(new File(args[1]));
+    }
+}
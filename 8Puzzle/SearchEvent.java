@@ -0,0 +1,71 @@
+/****************************************************************************
+ *  Compilation:  javac SearchEvent.java
+ *  Execution:    none
+ *  Dependencies: Board.java, SearchStatistics.java
+ *
+ *  Java Flight Recorder event for one Solver search. While a recording
+ *  has the event enabled, a Solver without its own listener collects
+ *  SearchStatistics and commits one event per solved board; otherwise no
+ *  statistics are collected.
+ *
+ *      java -XX:StartFlightRecording:filename=solver.jfr ...
+ *      jfr print --events puzzle.Search solver.jfr
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("puzzle.Search")
+@Label("Puzzle Search")
+@Category("Puzzle")
+@Description("A* search of one board by Solver")
+class SearchEvent extends Event {
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int cols;
+
+    @Label("Moves")
+    int moves;
+
+    @Label("Nodes Generated")
+    long generated;
+
+    @Label("Nodes Expanded")
+    long expanded;
+
+    @Label("Duplicates Pruned")
+    long duplicates;
+
+    @Label("Open List Peak")
+    int openPeak;
+
+    @Label("Heuristic Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long heuristicTime;
+
+    // copies the statistics of a finished search
+    void set(Board initial, SearchStatistics statistics) {
+        rows = initial.rows();
+        cols = initial.cols();
+        moves = statistics.moves();
+        generated = statistics.generated();
+        expanded = statistics.expanded();
+        duplicates = statistics.duplicates();
+        openPeak = statistics.openPeak();
+        heuristicTime = statistics.heuristicNanos();
+    }
+}
@@ -0,0 +1,61 @@
+/****************************************************************************
+ *  Compilation:  javac SearchListener.java
+ *  Execution:    none
+ *  Dependencies: Board.java
+ *
+ *  Callbacks from the A* search of Solver, for collecting statistics about
+ *  a search. All methods do nothing by default, a listener overrides the
+ *  ones it needs. A solver without a listener makes no calls and measures
+ *  nothing.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+public interface SearchListener {
+
+    /**
+     * Called once before the search of a solvable board starts.
+     * @param initial the board to solve
+     */
+    default void searchStarted(Board initial) { }
+
+    /**
+     * Called when a node is expanded.
+     * @param f        priority of the node, moves + heuristic
+     * @param g        moves from the initial board
+     * @param openSize number of nodes left in the open list
+     */
+    default void nodeExpanded(int f, int g, int openSize) { }
+
+    /**
+     * Called when a node is added to the open list.
+     * @param f priority of the node, moves + heuristic
+     * @param h heuristic value of the node
+     */
+    default void nodeGenerated(int f, int h) { }
+
+    /**
+     * Called when a board already expanded is reached again and dropped.
+     */
+    default void duplicatePruned() { }
+
+    /**
+     * Called after a timed batch of heuristic evaluations. One evaluation
+     * takes about as long as reading the clock, so the solver only times
+     * a sample of them, a batch at a time.
+     * @param evaluations number of evaluations in the batch
+     * @param nanos       time of the batch in nanoseconds
+     */
+    default void heuristicEvaluated(int evaluations, long nanos) { }
+
+    /**
+     * Called once when the search is over.
+     * @param moves minimum number of moves to solve the initial board
+     */
+    default void searchFinished(int moves) { }
+}
@@ -0,0 +1,217 @@
+/****************************************************************************
+ *  Compilation:  javac SearchStatistics.java
+ *  Execution:    java SearchStatistics input.txt
+ *  Dependencies: Board.java, SearchListener.java, Solver.java, algs4.jar
+ *
+ *  Search listener that counts what a Solver does: nodes generated and
+ *  expanded, duplicates pruned, the peak size of the open list, the time
+ *  spent in the heuristic and the number of nodes expanded in each f layer.
+ *  The heuristic time is estimated from the sampled batches the solver
+ *  times, at one evaluation per generated node.
+ *  One instance collects the statistics of one search.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+import java.util.Arrays;
+
+public class SearchStatistics implements SearchListener {
+
+    private long generated;
+    private long expanded;
+    private long duplicates;
+    private int openPeak;
+    private long sampledNanos;      // time of the timed heuristic evaluations
+    private long sampledCalls;      // number of timed heuristic evaluations
+    private long startNanos;
+    private long elapsedNanos;
+    private int moves = -1;
+    private long[] layers = new long[64];   // layers[f] = nodes expanded with priority f
+    private int maxLayer = -1;
+
+    @Override
+    public void searchStarted(Board initial) {
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void nodeExpanded(int f, int g, int openSize) {
+        expanded++;
+        if (openSize > openPeak) {
+            openPeak = openSize;
+        }
+        if (f >= layers.length) {
+            layers = Arrays.copyOf(layers, Math.max(2 * layers.length, f + 1));
+        }
+        layers[f]++;
+        if (f > maxLayer) {
+            maxLayer = f;
+        }
+    }
+
+    @Override
+    public void nodeGenerated(int f, int h) {
+        generated++;
+    }
+
+    @Override
+    public void duplicatePruned() {
+        duplicates++;
+    }
+
+    @Override
+    public void heuristicEvaluated(int evaluations, long nanos) {
+        sampledNanos += nanos;
+        sampledCalls += evaluations;
+    }
+
+    @Override
+    public void searchFinished(int moves) {
+        this.moves = moves;
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Number of nodes added to the open list.
+     * @return long nodes generated
+     */
+    public long generated() {
+        return generated;
+    }
+
+    /**
+     * Number of nodes expanded.
+     * @return long nodes expanded
+     */
+    public long expanded() {
+        return expanded;
+    }
+
+    /**
+     * Number of nodes dropped because their board was already expanded.
+     * @return long duplicates pruned
+     */
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Largest size of the open list seen at an expansion.
+     * @return int peak size of the open list
+     */
+    public int openPeak() {
+        return openPeak;
+    }
+
+    /**
+     * Estimated total time spent evaluating the heuristic, the mean time of
+     * the timed evaluations times the number of nodes generated.
+     * @return long time in nanoseconds, 0 if no evaluation was timed
+     */
+    public long heuristicNanos() {
+        return sampledCalls == 0 ? 0 : (long) ((double) sampledNanos * generated / sampledCalls);
+    }
+
+    /**
+     * Number of heuristic evaluations that were timed.
+     * @return long timed heuristic evaluations
+     */
+    public long heuristicCalls() {
+        return sampledCalls;
+    }
+
+    /**
+     * Time from the start to the end of the search.
+     * @return long time in nanoseconds, 0 if the search is not over
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Nodes expanded per second of search.
+     * @return double expansion rate, 0 if the search is not over
+     */
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : expanded * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Length of the solution found.
+     * @return int moves, -1 if the search is not over
+     */
+    public int moves() {
+        return moves;
+    }
+
+    /**
+     * Largest priority of an expanded node.
+     * @return int largest f layer, -1 if nothing was expanded
+     */
+    public int maxLayer() {
+        return maxLayer;
+    }
+
+    /**
+     * Number of nodes expanded with the given priority.
+     * @param f priority, moves + heuristic
+     * @return long nodes expanded in the layer
+     */
+    public long layer(int f) {
+        return f >= 0 && f < layers.length ? layers[f] : 0;
+    }
+
+    /**
+     * Returns the statistics, one value per line, then the nonempty layers.
+     * @return String representation of the statistics
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("moves           ").append(moves).append('\n');
+        s.append("generated       ").append(generated).append('\n');
+        s.append("expanded        ").append(expanded).append('\n');
+        s.append("duplicates      ").append(duplicates).append('\n');
+        s.append("open peak       ").append(openPeak).append('\n');
+        s.append("heuristic ms    ").append(heuristicNanos() / 1e6).append('\n');
+        s.append("elapsed ms      ").append(elapsedNanos / 1e6).append('\n');
+        s.append("nodes/s         ").append((long) nodesPerSecond()).append('\n');
+        for (int f = 0; f <= maxLayer; f++) {
+            if (layers[f] > 0) {
+                s.append("f = ").append(f).append("  ").append(layers[f]).append('\n');
+            }
+        }
+        return s.toString();
+    }
+
+    // print the statistics of solving a board
+    public static void main(String[] args) {
+        // "n" or "rows cols" on the first line
+        In in = new In(args[0]);
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                blocks[i][j] = in.readInt();
+
+        SearchStatistics statistics = new SearchStatistics();
+        Solver solver = new Solver(new Board(blocks), statistics);
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else
+            StdOut.print(statistics);
+    }
+}
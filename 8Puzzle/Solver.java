@@ -1,11 +1,35 @@
 /****************************************************************************
  *  Compilation:  javac Solver.java
  *  Execution:    java Solver input.txt
- *  Dependencies: Board.java, algs4.jar
+ *  Dependencies: Board.java, BucketQueue.java, LongHashSet.java,
+ *                NodeArena.java, SearchEvent.java, SearchListener.java,
+ *                SearchStatistics.java, algs4.jar
  *
  * Solver for the 8-puzzle problem.
  * This implementation uses the A* search algorithm with Manhattan priority
- * function.
+ * function. Expanded boards are kept in a closed set of board keys, a board
+ * is expanded at most once. Manhattan distance is consistent, so the first
+ * expansion of a board is along a shortest path. Unsolvable boards are
+ * detected by Board.isSolvable() before the search.
+ *
+ * Search nodes are int indices into a NodeArena of parallel primitive
+ * arrays rather than objects, and the open list is a BucketQueue of node
+ * indices keyed by the small integer priorities, with constant time insert
+ * and delete-min. The solution is rebuilt by following parent indices.
+ *
+ * The solution is kept as one byte per move of the empty block (U, D, L or
+ * R), and solution() replays the boards from the initial board one at a
+ * time as it is iterated.
+ *
+ * A SearchListener given to the constructor is told of every expansion,
+ * generated node and pruned duplicate, and of the time of the heuristic
+ * evaluations of one expansion in 64. Without one,
+ * statistics are only collected while a flight recording has the
+ * SearchEvent enabled, and the search makes no calls otherwise.
+ *
+ * The input file holds the board as it is printed: the size on the first
+ * line, n for an n-by-n board or rows and columns for a rectangular one,
+ * then the blocks row by row.
  *
  ****************************************************************************/
 
@@ -15,67 +39,37 @@
  *
  */
 
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.StdOut;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import jdk.jfr.FlightRecorder;
 
 
 public class Solver {
 
+    private static final int HEURISTIC_SAMPLE = 64;    // expansions per timed heuristic batch
+
+    private final Board initial;
     private boolean solvable;
-    private SearchNode resultNode;
-    private Stack<Board> solution;
+    private int moves = -1;
+    private byte[] path;            // path[i] = name of move i, U, D, L or R
 
     /*
-     * Private data structure that tracks and store information about priority
-     * and number of moves.
+     * Reusable search buffers. Consecutive solvers on one thread can share
+     * a workspace and reuse its tables instead of growing new ones.
+     * A workspace must not be used by two solvers at the same time.
      */
-    private class SearchNode implements Comparable<SearchNode> {
-
-        private final Board board;
-        private final int moves;
-        private final int priorityManhattan;
-        private final int priorityHamming;
-        private final SearchNode parent;
-
-        public SearchNode(Board board) {
-            this(board, null);
-        }
-
-        public SearchNode(Board board, SearchNode parent) {
-            this.board = board;
-            this.parent = parent;
-
-            if (parent == null) {
-                moves = 0;
-            } else {
-                moves =  parent.moves + 1;
-            }
-
-            priorityManhattan = board.manhattan() + moves;
-            priorityHamming = board.hamming() + moves;
-
-        }
-
-        /*
-         * Defines SearchNode ordering by Manhattan priority function;
-         * ties are solved by Hamming priority function.
-         */
-        @Override
-        public int compareTo(SearchNode that) {
-            if (this.priorityManhattan < that.priorityManhattan) {
-                return -1;
-            }
-            if (this.priorityManhattan == that.priorityManhattan) {
-                return this.priorityHamming < that.priorityHamming ? -1 :
-                        this.priorityHamming == that.priorityHamming ? 0 : 1;
-            }
-            return 1;
-        }
+    static final class Workspace {
+        private final LongHashSet closed = new LongHashSet();
+        private final BucketQueue open = new BucketQueue();
+        private final NodeArena arena = new NodeArena(0, 0);
     }
 
-
     /**
      * Constructs the Solver and finds a solution to the initial board
      * using the A* algorithm
@@ -83,61 +77,168 @@ public class Solver {
      * @param initial board for solving
      */
     public Solver(Board initial) {
+        this(initial, new Workspace(), null);
+    }
 
-        solution = new Stack<>();
-
-        MinPQ<SearchNode> originPQ = new MinPQ<>();
-        MinPQ<SearchNode> twinPQ = new MinPQ<>();
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using the A* algorithm, reporting the search to the listener
+     *
+     * @param initial  board for solving
+     * @param listener receives the search events, or null
+     */
+    public Solver(Board initial, SearchListener listener) {
+        this(initial, new Workspace(), listener);
+    }
 
-        SearchNode currentNode = new SearchNode(initial);
-        SearchNode currentTwin = new SearchNode(initial.twin());
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using the A* algorithm and the buffers of the given workspace
+     *
+     * @param initial   board for solving
+     * @param workspace buffers to reuse, not in use by another solver
+     */
+    Solver(Board initial, Workspace workspace) {
+        this(initial, workspace, null);
+    }
 
-        originPQ.insert(currentNode);
-        twinPQ.insert(currentTwin);
-        Board prevBoard;
+    /**
+     * Constructs the Solver and finds a solution to the initial board
+     * using the A* algorithm and the buffers of the given workspace,
+     * reporting the search to the listener
+     *
+     * @param initial   board for solving
+     * @param workspace buffers to reuse, not in use by another solver
+     * @param listener  receives the search events, or null
+     */
+    Solver(Board initial, Workspace workspace, SearchListener listener) {
 
-        while (!currentNode.board.isGoal() && !currentTwin.board.isGoal()) {
+        this.initial = initial;
 
-            currentNode = originPQ.delMin();
-            currentTwin = twinPQ.delMin();
+        // unsolvable boards are rejected by the parity test, without a search
+        solvable = initial.isSolvable();
+        if (!solvable) {
+            return;
+        }
 
-            if (currentNode.parent == null) {
-                prevBoard = null;
+        // without a listener, collect statistics only for an enabled JFR event;
+        // the event class is not even loaded unless the recorder is running
+        SearchEvent event = null;
+        SearchStatistics statistics = null;
+        if (listener == null && FlightRecorder.isInitialized()) {
+            event = new SearchEvent();
+            if (event.isEnabled()) {
+                statistics = new SearchStatistics();
+                listener = statistics;
+                event.begin();
             } else {
-                prevBoard = currentNode.parent.board;
+                event = null;
             }
+        }
+        if (listener != null) {
+            listener.searchStarted(initial);
+        }
 
-            for (Board board : currentNode.board.neighbors()) {
-                if (!board.equals(prevBoard))
-                    originPQ.insert(new SearchNode(board, currentNode));
-            }
+        LongHashSet closed = workspace.closed;
+        BucketQueue open = workspace.open;
+        NodeArena arena = workspace.arena;
+        closed.clear();
+        open.clear();
+        arena.reset(initial.rows(), initial.cols());
 
-            if (currentTwin.parent == null) {
-                prevBoard = null;
-            } else {
-                prevBoard = currentTwin.parent.board;
-            }
+        int h = initial.manhattan();
+        open.insert(arena.add(initial, -1, 0, h), h, h);
 
-            for (Board board : currentTwin.board.neighbors()) {
-                if (!board.equals(prevBoard))
-                    twinPQ.insert(new SearchNode(board, currentTwin));
-            }
+        int node = expandNext(arena, open, closed, listener);
+        while (arena.heuristic(node) != 0) {
+            node = expandNext(arena, open, closed, listener);
         }
 
-        if (currentNode.board.isGoal()) {
-            solvable = true;
-            resultNode = currentNode;
-            solution.push(currentNode.board);
-            while (currentNode.parent != null) {
-                currentNode = currentNode.parent;
-                solution.push(currentNode.board);
-            }
+        moves = arena.moves(node);
+        path = new byte[moves];
+        Board board = arena.board(node);
+        for (int i = moves - 1; i >= 0; i--) {
+            node = arena.parent(node);
+            Board parent = arena.board(node);
+            path[i] = (byte) Board.moveName(parent.moveTo(board));
+            board = parent;
+        }
+        arena.reset(0, 0);
 
-        } else {
-            solvable = false;
+        if (listener != null) {
+            listener.searchFinished(moves);
+        }
+        if (event != null) {
+            event.set(initial, statistics);
+            event.commit();
         }
+    }
 
+    /*
+     * Removes the best node not expanded yet, marks it as expanded and
+     * enqueues its neighbors which are not expanded yet. Nodes are ordered
+     * by moves + Manhattan distance, ties are solved in favour of the
+     * smaller Manhattan distance.
+     *
+     * Moves are checked by the key and distance of the neighbor they lead
+     * to, a neighbor board is only created if the arena has to keep it.
+     */
+    private int expandNext(NodeArena arena, BucketQueue open, LongHashSet closed,
+                           SearchListener listener) {
+        int node = open.delMin();
+        while (!closed.add(arena.key(node))) {
+            if (listener != null) {
+                listener.duplicatePruned();
+            }
+            node = open.delMin();
+        }
 
+        // a board rebuilt from its key has no Manhattan distance yet, children
+        // get theirs from the node's by the change of the move
+        Board board = arena.board(node);
+        int g = arena.moves(node) + 1;
+        int parentH = arena.heuristic(node);
+        int[] changes = null;
+        if (listener != null) {
+            listener.nodeExpanded(g - 1 + arena.heuristic(node), g - 1, open.size());
+            if ((closed.size() - 1) % HEURISTIC_SAMPLE == 0) {
+                changes = timeHeuristic(board, listener);
+            }
+        }
+        for (int moves = board.legalMoves(); moves != 0; moves &= moves - 1) {
+            int move = Integer.numberOfTrailingZeros(moves);
+            long key = board.keyAfter(move);
+            if (closed.contains(key)) {
+                if (listener != null) {
+                    listener.duplicatePruned();
+                }
+                continue;
+            }
+            int h = parentH + (changes == null ? board.manhattanChange(move) : changes[move]);
+            if (listener != null) {
+                listener.nodeGenerated(g + h, h);
+            }
+            int child = arena.isPacked()
+                    ? arena.add(key, node, g, h)
+                    : arena.add(board.move(move), node, g, h);
+            open.insert(child, g + h, h);
+        }
+        return node;
+    }
+
+    // evaluates the heuristic change of every legal move of the board at once
+    // and reports the time; a single evaluation takes about as long as
+    // reading the clock, so only one expansion in HEURISTIC_SAMPLE is timed
+    private static int[] timeHeuristic(Board board, SearchListener listener) {
+        int legal = board.legalMoves();
+        int[] changes = new int[4];
+        long start = System.nanoTime();
+        for (int moves = legal; moves != 0; moves &= moves - 1) {
+            int move = Integer.numberOfTrailingZeros(moves);
+            changes[move] = board.manhattanChange(move);
+        }
+        listener.heuristicEvaluated(Integer.bitCount(legal), System.nanoTime() - start);
+        return changes;
     }
 
     /**
@@ -157,15 +258,27 @@ public class Solver {
      * @return int minimum number of moves to solve the initial board
      */
     public int moves() {
-        if (isSolvable()) {
-            return resultNode.moves;
+        return moves;
+    }
+
+    /**
+     * Returns the moves of the empty block from the initial board to the
+     * solution, one byte per move: 'U', 'D', 'L' or 'R'.
+     * Returns null if initial board unsolvable.
+     *
+     * @return byte[] new array of moves.length() move names
+     */
+    public byte[] moveSequence() {
+        if (!isSolvable()) {
+            return null;
         }
-        return -1;
+        return Arrays.copyOf(path, path.length);
     }
 
     /**
      * Returns the sequence of Boards from the initial board to the solution.
-     * Returns null if initial board unsolvable.
+     * Returns null if initial board unsolvable. Boards are replayed from
+     * the move sequence, one at a time as the iteration reaches them.
      *
      * @return Iterable object to loop through the solution chain
      */
@@ -173,18 +286,42 @@ public class Solver {
         if (!isSolvable()) {
             return null;
         }
-        return solution;
+        return () -> new Iterator<Board>() {
+            private Board board;
+            private int next = -1;      // index of the next move, -1 for the initial board
+
+            @Override
+            public boolean hasNext() {
+                return next < path.length;
+            }
+
+            @Override
+            public Board next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                board = next < 0 ? initial : board.move(Board.moveOf((char) path[next]));
+                next++;
+                return board;
+            }
+        };
     }
 
     // solve a slider puzzle (given below)
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
-        // create initial board from file
+        // create initial board from file, "n" or "rows cols" on the first line
         In in = new In(args[0]);
-        int n = in.readInt();
-        int[][] blocks = new int[n][n];
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < n; j++)
+        String line = in.readLine();
+        while (line.trim().isEmpty()) {
+            line = in.readLine();
+        }
+        String[] size = line.trim().split("\\s+");
+        int rows = Integer.parseInt(size[0]);
+        int cols = size.length > 1 ? Integer.parseInt(size[1]) : rows;
+        int[][] blocks = new int[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
                 blocks[i][j] = in.readInt();
         Board initial = new Board(blocks);
 
@@ -192,12 +329,16 @@ public class Solver {
         Solver solver = new Solver(initial);
 
         // print solution to standard output
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
         if (!solver.isSolvable())
-            StdOut.println("No solution possible");
+            out.write("No solution possible\n");
         else {
-            StdOut.println("Minimum number of moves = " + solver.moves());
-            for (Board board : solver.solution())
-                StdOut.println(board);
+            out.write("Minimum number of moves = " + solver.moves() + "\n");
+            for (Board board : solver.solution()) {
+                board.writeTo(out);
+                out.write('\n');
+            }
         }
+        out.flush();
     }
 }
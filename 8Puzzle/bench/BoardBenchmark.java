@@ -0,0 +1,104 @@
+/****************************************************************************
+ *  Compilation:  see SolverBenchmark.java
+ *  Execution:    java -jar benchmarks.jar BoardBenchmark -prof gc
+ *  Dependencies: PuzzleCorpus.java, Puzzle.java, jmh-core.jar
+ *
+ *  JMH benchmarks of the Board operations used by every search step:
+ *  generating neighbors, Manhattan and Hamming distances and equality.
+ *  Boards come from the random walk corpus. Distances are cached by a
+ *  board once computed, so they are measured on a new board each time,
+ *  and construct() gives the cost of creating the board alone.
+ *
+ ****************************************************************************/
+
+package bench;
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    private static final int BOARDS = 64;
+
+    @Param({"3", "4", "6"})
+    private int n;
+
+    private int[][][] blocks;
+    private Object[] boards;
+    private Object[] copies;        // equal to boards, other instances
+    private int next;
+
+    @Setup
+    public void setUp() {
+        blocks = PuzzleCorpus.walks(n, 10 * n * n, BOARDS, 42L);
+        boards = new Object[BOARDS];
+        copies = new Object[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            boards[i] = Puzzle.board(blocks[i]);
+            copies[i] = Puzzle.board(blocks[i]);
+        }
+    }
+
+    // cycles through the corpus so one board does not stay in the branch predictor
+    private int nextIndex() {
+        next = (next + 1) & (BOARDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public void neighbors(Blackhole bh) {
+        for (Object neighbor : Puzzle.neighbors(boards[nextIndex()])) {
+            bh.consume(neighbor);
+        }
+    }
+
+    @Benchmark
+    public Object construct() {
+        return Puzzle.board(blocks[nextIndex()]);
+    }
+
+    @Benchmark
+    public int manhattan() {
+        return Puzzle.manhattan(Puzzle.board(blocks[nextIndex()]));
+    }
+
+    @Benchmark
+    public int hamming() {
+        return Puzzle.hamming(Puzzle.board(blocks[nextIndex()]));
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        int i = nextIndex();
+        return Puzzle.equal(boards[i], copies[i]);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        int i = nextIndex();
+        return Puzzle.equal(boards[i], copies[(i + 1) & (BOARDS - 1)]);
+    }
+}
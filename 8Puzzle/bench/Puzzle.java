@@ -0,0 +1,153 @@
+/****************************************************************************
+ *  Compilation:  javac -cp classes -d classes bench/Puzzle.java
+ *  Execution:    none
+ *  Dependencies: Board.java, Solver.java, IDAStarSolver.java,
+ *                PatternDatabase.java
+ *
+ *  Access to the puzzle classes for the benchmarks. JMH does not accept
+ *  benchmarks in the unnamed package, and classes in a named package
+ *  cannot refer to the unnamed package, so the benchmarks reach Board and
+ *  the solvers through method handles looked up by name. The handles are
+ *  static final, so the JIT compiler inlines them like direct calls.
+ *
+ ****************************************************************************/
+
+package bench;
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Puzzle {
+
+    private static final MethodHandle NEW_BOARD;
+    private static final MethodHandle NEIGHBORS;
+    private static final MethodHandle MANHATTAN;
+    private static final MethodHandle HAMMING;
+    private static final MethodHandle EQUALS;
+    private static final MethodHandle NEW_SOLVER;
+    private static final MethodHandle SOLVER_MOVES;
+    private static final MethodHandle NEW_IDA;
+    private static final MethodHandle IDA_MOVES;
+    private static final MethodHandle FIFTEEN_PDB;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> board = Class.forName("Board");
+            Class<?> solver = Class.forName("Solver");
+            Class<?> ida = Class.forName("IDAStarSolver");
+            Class<?> pdb = Class.forName("PatternDatabase");
+            MethodType object = MethodType.methodType(Object.class, Object.class);
+            MethodType count = MethodType.methodType(int.class, Object.class);
+
+            NEW_BOARD = lookup.findConstructor(board, MethodType.methodType(void.class, int[][].class))
+                    .asType(MethodType.methodType(Object.class, int[][].class));
+            NEIGHBORS = lookup.findVirtual(board, "neighbors", MethodType.methodType(Iterable.class))
+                    .asType(MethodType.methodType(Iterable.class, Object.class));
+            MANHATTAN = lookup.findVirtual(board, "manhattan", MethodType.methodType(int.class))
+                    .asType(count);
+            HAMMING = lookup.findVirtual(board, "hamming", MethodType.methodType(int.class))
+                    .asType(count);
+            EQUALS = lookup.findVirtual(board, "equals",
+                    MethodType.methodType(boolean.class, Object.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, Object.class));
+            NEW_SOLVER = lookup.findConstructor(solver, MethodType.methodType(void.class, board))
+                    .asType(object);
+            SOLVER_MOVES = lookup.findVirtual(solver, "moves", MethodType.methodType(int.class))
+                    .asType(count);
+            NEW_IDA = lookup.findConstructor(ida, MethodType.methodType(void.class, board, pdb))
+                    .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+            IDA_MOVES = lookup.findVirtual(ida, "moves", MethodType.methodType(int.class))
+                    .asType(count);
+            FIFTEEN_PDB = lookup.findStatic(pdb, "fifteenPuzzle", MethodType.methodType(pdb))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Puzzle() { }
+
+    static Object board(int[][] blocks) {
+        try {
+            return (Object) NEW_BOARD.invokeExact(blocks);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Iterable<?> neighbors(Object board) {
+        try {
+            return (Iterable<?>) NEIGHBORS.invokeExact(board);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int manhattan(Object board) {
+        try {
+            return (int) MANHATTAN.invokeExact(board);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int hamming(Object board) {
+        try {
+            return (int) HAMMING.invokeExact(board);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean equal(Object board, Object other) {
+        try {
+            return (boolean) EQUALS.invokeExact(board, other);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    // minimum number of moves found by Solver, A*
+    static int solve(Object board) {
+        try {
+            return (int) SOLVER_MOVES.invokeExact((Object) NEW_SOLVER.invokeExact(board));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    // minimum number of moves found by IDAStarSolver with the database, -1 if unsolvable
+    static int solveIda(Object board, Object pdb) {
+        try {
+            return (int) IDA_MOVES.invokeExact((Object) NEW_IDA.invokeExact(board, pdb));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object fifteenPuzzleDatabase() {
+        try {
+            return (Object) FIFTEEN_PDB.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,197 @@
+/****************************************************************************
+ *  Compilation:  javac -d classes bench/PuzzleCorpus.java
+ *  Execution:    java -cp classes bench.PuzzleCorpus walk n steps count
+ *                java -cp classes bench.PuzzleCorpus random n count
+ *                java -cp classes bench.PuzzleCorpus korf
+ *  Dependencies: none
+ *
+ *  Reproducible sets of sliding puzzle instances for benchmarks. Every set
+ *  is generated from a fixed seed with java.util.Random, whose sequence is
+ *  specified, so the same instances come out on every JDK.
+ *
+ *  walks   - boards reached from the goal by random moves of the empty
+ *            block, never undoing the previous move. The number of moves
+ *            is an upper bound on the solution length, so walk sets of
+ *            growing length give graded difficulty.
+ *  random  - uniformly random solvable boards.
+ *  korf    - 100 random solvable 4x4 boards, generated like Korf's 1985
+ *            set of 15-puzzle instances. It is not the published set: the
+ *            published instances are not embedded here, and they put the
+ *            empty block first in the goal, unlike Board.
+ *
+ *  The command line client prints a set in the Solver input format.
+ *
+ ****************************************************************************/
+
+package bench;
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Random;
+
+public final class PuzzleCorpus {
+
+    /** Seed of the korf set. */
+    public static final long KORF_SEED = 1985L;
+
+    /** Number of boards in the korf set. */
+    public static final int KORF_SIZE = 100;
+
+    private PuzzleCorpus() { }
+
+    /**
+     * Boards reached from the n-by-n goal by random walks of the empty block.
+     *
+     * @param n     size of the board side
+     * @param steps moves of each walk
+     * @param count number of boards
+     * @param seed  seed of the walks
+     * @return int[][][] count boards, blocks[i][j] = block in row i, column j
+     * @throws IllegalArgumentException if n < 2 or steps or count is negative
+     */
+    public static int[][][] walks(int n, int steps, int count, long seed) {
+        if (n < 2 || steps < 0 || count < 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        Random random = new Random(seed);
+        int[][][] boards = new int[count][][];
+        int[] blocks = new int[n * n];
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = (i + 1) % blocks.length;
+            }
+            int blank = blocks.length - 1;
+            int previous = -1;
+            for (int s = 0; s < steps; ) {
+                int x = blank / n;
+                int y = blank % n;
+                int target;
+                switch (random.nextInt(4)) {
+                    case 0:  target = x > 0 ? blank - n : -1; break;
+                    case 1:  target = x < n - 1 ? blank + n : -1; break;
+                    case 2:  target = y > 0 ? blank - 1 : -1; break;
+                    default: target = y < n - 1 ? blank + 1 : -1; break;
+                }
+                if (target < 0 || target == previous) {
+                    continue;
+                }
+                blocks[blank] = blocks[target];
+                blocks[target] = 0;
+                previous = blank;
+                blank = target;
+                s++;
+            }
+            boards[b] = toRows(blocks, n);
+        }
+        return boards;
+    }
+
+    /**
+     * Uniformly random solvable n-by-n boards.
+     *
+     * @param n     size of the board side
+     * @param count number of boards
+     * @param seed  seed of the shuffles
+     * @return int[][][] count boards, blocks[i][j] = block in row i, column j
+     * @throws IllegalArgumentException if n < 2 or count is negative
+     */
+    public static int[][][] random(int n, int count, long seed) {
+        if (n < 2 || count < 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        Random random = new Random(seed);
+        int[][][] boards = new int[count][][];
+        int[] blocks = new int[n * n];
+        for (int b = 0; b < count; b++) {
+            do {
+                for (int i = 0; i < blocks.length; i++) {
+                    blocks[i] = i;
+                }
+                for (int i = blocks.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int t = blocks[i];
+                    blocks[i] = blocks[j];
+                    blocks[j] = t;
+                }
+            } while (!isSolvable(blocks, n));
+            boards[b] = toRows(blocks, n);
+        }
+        return boards;
+    }
+
+    /**
+     * The korf set: KORF_SIZE random solvable 4x4 boards from KORF_SEED.
+     *
+     * @return int[][][] boards, blocks[i][j] = block in row i, column j
+     */
+    public static int[][][] korf() {
+        return random(4, KORF_SIZE, KORF_SEED);
+    }
+
+    // same parity test as Board.isSolvable(), on a row by row block array
+    private static boolean isSolvable(int[] blocks, int n) {
+        int inversions = 0;
+        int blank = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] == 0) {
+                blank = i;
+                continue;
+            }
+            for (int j = i + 1; j < blocks.length; j++) {
+                if (blocks[j] != 0 && blocks[j] < blocks[i]) {
+                    inversions++;
+                }
+            }
+        }
+        if (n % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        return (inversions + blank / n) % 2 == 1;
+    }
+
+    private static int[][] toRows(int[] blocks, int n) {
+        int[][] rows = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(blocks, i * n, rows[i], 0, n);
+        }
+        return rows;
+    }
+
+    // print a set in the Solver input format
+    public static void main(String[] args) {
+        int[][][] boards;
+        switch (args.length > 0 ? args[0] : "") {
+            case "walk":
+                boards = walks(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        Integer.parseInt(args[3]), args.length > 4 ? Long.parseLong(args[4]) : 1L);
+                break;
+            case "random":
+                boards = random(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        args.length > 3 ? Long.parseLong(args[3]) : 1L);
+                break;
+            case "korf":
+                boards = korf();
+                break;
+            default:
+                throw new java.lang.IllegalArgumentException(
+                        "usage: walk n steps count [seed] | random n count [seed] | korf");
+        }
+
+        StringBuilder s = new StringBuilder();
+        for (int[][] board : boards) {
+            s.append(board.length).append('\n');
+            for (int[] row : board) {
+                for (int block : row) {
+                    s.append(block < 10 ? "  " : " ").append(block);
+                }
+                s.append('\n');
+            }
+            s.append('\n');
+        }
+        System.out.print(s);
+    }
+}
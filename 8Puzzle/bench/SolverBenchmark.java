@@ -0,0 +1,121 @@
+/****************************************************************************
+ *  Compilation:  javac -cp algs4.jar -d classes *.java
+ *                javac -cp classes:jmh-core.jar:jmh-generator-annprocess.jar
+ *                      -d classes bench/*.java
+ *                (then package classes with jmh-core into benchmarks.jar)
+ *  Execution:    java -jar benchmarks.jar SolverBenchmark -prof gc
+ *  Dependencies: PuzzleCorpus.java, Puzzle.java, jmh-core.jar, the puzzle
+ *                classes and algs4.jar on the class path
+ *
+ *  End-to-end JMH benchmarks of the solvers on the corpus: A* (Solver) on
+ *  sets of random walks of growing length, and IDA* with the 15-puzzle
+ *  pattern database on boards of the korf set. Each invocation solves a
+ *  whole set, or one korf board, so scores are comparable between runs and
+ *  changes to the heuristic or the search. Allocation is reported by the
+ *  gc profiler (-prof gc).
+ *
+ ****************************************************************************/
+
+package bench;
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    private static final int SET_SIZE = 20;
+
+    /**
+     * A set of random walks, "n/steps": SET_SIZE n-by-n boards reached by
+     * walks of the given length.
+     */
+    @State(Scope.Benchmark)
+    public static class WalkSet {
+
+        @Param({"3/10", "3/20", "3/40", "3/80", "4/20", "4/40", "4/60"})
+        private String set;
+
+        private Object[] boards;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String[] parts = set.split("/");
+            int[][][] blocks = PuzzleCorpus.walks(Integer.parseInt(parts[0]),
+                    Integer.parseInt(parts[1]), SET_SIZE, 7L);
+            boards = new Object[blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+                boards[i] = Puzzle.board(blocks[i]);
+            }
+        }
+    }
+
+    /**
+     * One board of the korf set, with the 15-puzzle pattern database.
+     */
+    @State(Scope.Benchmark)
+    public static class KorfBoard {
+
+        @Param({"0", "1", "2", "3", "4"})
+        private int index;
+
+        private Object board;
+        private Object pdb;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = Puzzle.board(PuzzleCorpus.korf()[index]);
+            pdb = Puzzle.fifteenPuzzleDatabase();
+        }
+    }
+
+    // total moves of the set, A*
+    @Benchmark
+    public int aStar(WalkSet walks) {
+        int total = 0;
+        for (Object board : walks.boards) {
+            total += Puzzle.solve(board);
+        }
+        return total;
+    }
+
+    // total moves of the set, IDA* with Manhattan distance and linear conflicts
+    @Benchmark
+    public int idaStar(WalkSet walks) {
+        int total = 0;
+        for (Object board : walks.boards) {
+            total += Puzzle.solveIda(board, null);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public int idaStarKorf(KorfBoard korf) {
+        return Puzzle.solveIda(korf.board, korf.pdb);
+    }
+}
@@ -9,6 +9,16 @@
  *  The idea is to build a BST with points in the  nodes, using the x- and
  *  y-coordinates of the points as keys in strictly alternating sequence.
  *
+ *  A tree can also be built from an array of points at once. Each node then
+ *  gets the median point of its subtree by the coordinate of its level,
+ *  found by quickselect and a three-way partition in linear expected time,
+ *  so the tree is balanced whatever the order of the points, and subtrees
+ *  are built in parallel on the fork-join pool. The bulk-built tree keeps
+ *  the invariants of insert(), and points can be inserted into it later.
+ *
+ *  Besides the nearest neighbor, the tree finds the k nearest neighbors and
+ *  the points within a radius, into arrays given by the caller.
+ *
  ****************************************************************************/
 
 /**
@@ -22,6 +32,11 @@ import edu.princeton.cs.algs4.Queue;
 import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.StdDraw;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class KdTree {
 
     private static final boolean VERTICAL = true;
@@ -33,6 +48,9 @@ public class KdTree {
     private static final double Y_MIN = 0.0;
     private static final double Y_MAX = 1.0;
 
+    // subtrees smaller than this are built on the current thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     private int size;
     private Node tree;
 
@@ -56,6 +74,158 @@ public class KdTree {
         size = 0;
     }
 
+    /**
+     * Construct a balanced set of the given points; repeated points are
+     * added once. Depth is about log2 of the number of points, more only
+     * if many points share a coordinate. The array is not changed.
+     *
+     * @param points points to add to the set
+     * @throws NullPointerException if points or any point is null
+     */
+    public KdTree(Point2D[] points) {
+        if (points == null) {
+            throw new java.lang.NullPointerException();
+        }
+        Point2D[] copy = points.clone();
+        for (Point2D p : copy) {
+            if (p == null) {
+                throw new java.lang.NullPointerException();
+            }
+        }
+
+        // drop repeated points, == on coordinates as in Point2D.equals()
+        Arrays.sort(copy, (a, b) -> a.x() < b.x() ? -1 : a.x() > b.x() ? 1
+                : a.y() < b.y() ? -1 : a.y() > b.y() ? 1 : 0);
+        int n = 0;
+        for (int i = 0; i < copy.length; i++) {
+            if (n == 0 || !copy[n - 1].equals(copy[i])) {
+                copy[n++] = copy[i];
+            }
+        }
+
+        size = n;
+        BuildTask root = new BuildTask(copy, 0, n, VERTICAL, X_MIN, Y_MIN, X_MAX, Y_MAX);
+        tree = n < PARALLEL_THRESHOLD ? root.compute() : ForkJoinPool.commonPool().invoke(root);
+    }
+
+    /*
+     * Builds the subtree of points[lo, hi) in the given rectangle. The node
+     * point is a median by the coordinate of the level. Points with the
+     * same coordinate go where insert() would put them: to the right of a
+     * vertical node, below a horizontal one.
+     */
+    private final class BuildTask extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Point2D[] points;
+        private final int lo;
+        private final int hi;
+        private final boolean orient;
+        private final double xmin;
+        private final double ymin;
+        private final double xmax;
+        private final double ymax;
+
+        BuildTask(Point2D[] points, int lo, int hi, boolean orient,
+                  double xmin, double ymin, double xmax, double ymax) {
+            this.points = points;
+            this.lo = lo;
+            this.hi = hi;
+            this.orient = orient;
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+        }
+
+        @Override
+        protected Node compute() {
+            if (lo >= hi) {
+                return null;
+            }
+            double median = select(points, lo, hi, lo + (hi - lo) / 2, orient);
+
+            // points[lo, lt) < median, points[lt, gt) == median, points[gt, hi) > median
+            int lt = lo;
+            int gt = hi;
+            for (int i = lo; i < gt; ) {
+                double key = key(points[i], orient);
+                if (key < median) {
+                    swap(points, lt++, i++);
+                } else if (key > median) {
+                    swap(points, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+
+            int mid = orient == VERTICAL ? lt : gt - 1;
+            Point2D point = points[mid];
+            Node node = new Node(point, new RectHV(xmin, ymin, xmax, ymax), orient);
+
+            BuildTask left;
+            BuildTask right;
+            if (orient == VERTICAL) {
+                left = new BuildTask(points, lo, mid, !orient, xmin, ymin, point.x(), ymax);
+                right = new BuildTask(points, mid + 1, hi, !orient, point.x(), ymin, xmax, ymax);
+            } else {
+                left = new BuildTask(points, lo, mid, !orient, xmin, ymin, xmax, point.y());
+                right = new BuildTask(points, mid + 1, hi, !orient, xmin, point.y(), xmax, ymax);
+            }
+
+            if (hi - lo < PARALLEL_THRESHOLD) {
+                node.leftBelow = left.compute();
+                node.rightAbove = right.compute();
+            } else {
+                left.fork();
+                node.rightAbove = right.compute();
+                node.leftBelow = left.join();
+            }
+            return node;
+        }
+    }
+
+    private static double key(Point2D p, boolean orient) {
+        return orient == VERTICAL ? p.x() : p.y();
+    }
+
+    private static void swap(Point2D[] a, int i, int j) {
+        Point2D t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /*
+     * Quickselect with random pivots: rearranges points[lo, hi) so that the
+     * k-th smallest coordinate is at k, and returns it.
+     */
+    private static double select(Point2D[] a, int lo, int hi, int k, boolean orient) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        hi--;
+        while (hi > lo) {
+            swap(a, lo, lo + random.nextInt(hi - lo + 1));
+            double pivot = key(a[lo], orient);
+            int i = lo;
+            int j = hi + 1;
+            while (true) {
+                while (key(a[++i], orient) < pivot) {
+                    if (i == hi) break;
+                }
+                while (pivot < key(a[--j], orient)) {
+                    if (j == lo) break;
+                }
+                if (i >= j) break;
+                swap(a, i, j);
+            }
+            swap(a, lo, j);
+            if (j > k) hi = j - 1;
+            else if (j < k) lo = j + 1;
+            else break;
+        }
+        return key(a[k], orient);
+    }
+
     /**
      * Checks is the set empty.
      *
@@ -305,6 +475,170 @@ public class KdTree {
         return nearestPoint;
     }
 
+    /**
+     * Puts the k nearest neighbors in the set to point p into out[0, k), by
+     * increasing distance to p; only size() of them if the set is smaller.
+     * The other elements of out are not changed, and no objects are created.
+     *
+     * @param p   point to find its nearest neighbors
+     * @param k   number of neighbors to find
+     * @param out buffer for the neighbors, at least k long
+     * @return int number of neighbors found, min(k, size())
+     * @throws NullPointerException if given point p or out is null
+     * @throws IllegalArgumentException if k is negative or longer than out
+     */
+    public int nearest(Point2D p, int k, Point2D[] out) {
+        if (p == null || out == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (k < 0 || k > out.length) {
+            throw new java.lang.IllegalArgumentException("k = " + k);
+        }
+        if (k == 0) {
+            return 0;
+        }
+
+        // out[0, n) is a max-heap by distance to p while searching
+        int n = nearest(tree, p, k, out, 0);
+
+        // heap sort, each step moves the farthest point to the end
+        for (int last = n - 1; last > 0; last--) {
+            Point2D farthest = out[0];
+            out[0] = out[last];
+            out[last] = farthest;
+            sink(out, 0, last, p);
+        }
+        return n;
+    }
+
+    /*
+     * Adds the points of the subtree closer than the farthest point of the
+     * heap out[0, n) of at most k points, and returns the new heap size.
+     */
+    private int nearest(Node node, Point2D point, int k, Point2D[] out, int n) {
+
+        if (node == null) {
+            return n;
+        }
+
+        // a full heap: rectangle farther than the k-th point cannot contain
+        // any closer points
+        if (n == k && node.rect.distanceSquaredTo(point) >= point.distanceSquaredTo(out[0])) {
+            return n;
+        }
+
+        if (n < k) {
+            out[n] = node.point;
+            swim(out, n, point);
+            n++;
+        } else if (point.distanceSquaredTo(node.point) < point.distanceSquaredTo(out[0])) {
+            out[0] = node.point;
+            sink(out, 0, n, point);
+        }
+
+        Node first;
+        Node second;
+        // check leftBelow first, rightAbove after
+        if (node.orient == VERTICAL && point.x() < node.point.x() ||
+                node.orient == HORIZONTAL && point.y() < node.point.y()) {
+
+            first = node.leftBelow;
+            second = node.rightAbove;
+
+        } else {
+
+            first = node.rightAbove;
+            second = node.leftBelow;
+        }
+        n = nearest(first, point, k, out, n);
+        n = nearest(second, point, k, out, n);
+
+        return n;
+    }
+
+    // max-heap in heap[0, n) by distance to point, the farthest on top
+    private static void swim(Point2D[] heap, int i, Point2D point) {
+        Point2D moving = heap[i];
+        double distance = point.distanceSquaredTo(moving);
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (point.distanceSquaredTo(heap[parent]) >= distance) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = moving;
+    }
+
+    private static void sink(Point2D[] heap, int i, int n, Point2D point) {
+        Point2D moving = heap[i];
+        double distance = point.distanceSquaredTo(moving);
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            double childDistance = point.distanceSquaredTo(heap[child]);
+            if (child + 1 < n) {
+                double rightDistance = point.distanceSquaredTo(heap[child + 1]);
+                if (rightDistance > childDistance) {
+                    child++;
+                    childDistance = rightDistance;
+                }
+            }
+            if (childDistance <= distance) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = moving;
+    }
+
+    /**
+     * Puts the points of the set at distance at most r from point p into out,
+     * in no particular order, and returns how many there are. If there are
+     * more than out.length, out holds some of them and the rest are only
+     * counted, so a bigger buffer can be passed again. No objects are created.
+     *
+     * @param p   center of the circle
+     * @param r   radius of the circle
+     * @param out buffer for the points
+     * @return int number of points within distance r of p
+     * @throws NullPointerException if given point p or out is null
+     * @throws IllegalArgumentException if r is negative or NaN
+     */
+    public int withinRadius(Point2D p, double r, Point2D[] out) {
+        if (p == null || out == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (!(r >= 0)) {
+            throw new java.lang.IllegalArgumentException("r = " + r);
+        }
+        return withinRadius(tree, p, r * r, out, 0);
+    }
+
+    private int withinRadius(Node node, Point2D point, double radius2, Point2D[] out, int n) {
+
+        if (node == null) {
+            return n;
+        }
+
+        // rectangle outside the circle cannot contain any points within it
+        if (node.rect.distanceSquaredTo(point) > radius2) {
+            return n;
+        }
+
+        if (point.distanceSquaredTo(node.point) <= radius2) {
+            if (n < out.length) {
+                out[n] = node.point;
+            }
+            n++;
+        }
+        n = withinRadius(node.leftBelow, point, radius2, out, n);
+        n = withinRadius(node.rightAbove, point, radius2, out, n);
+
+        return n;
+    }
+
     // unit testing of the methods (optional)
     public static void main(String[] args) {
 
@@ -0,0 +1,628 @@
+/****************************************************************************
+ *  Compilation:  javac StaticKdTree.java
+ *  Execution:    none
+ *  Dependencies: algs4.jar
+ *
+ *  Immutable data type that represents a set of points in the plane using
+ *  a 2d-tree with an implicit layout. The tree is balanced and
+ *  left-complete, and is kept in breadth-first order in parallel arrays:
+ *  the children of node i are nodes 2i + 1 and 2i + 2, and node i holds
+ *  the coordinates xs[i], ys[i] and the index of its point in the array
+ *  the tree was built from. There are no node objects, no points and no
+ *  rectangles: node rectangles are computed on the fly while descending.
+ *  A point takes 20 bytes, and nodes near the root share cache lines.
+ *
+ *  Nodes split by x and y in strictly alternating sequence, as in KdTree.
+ *  The split point is the median of its subtree, so points with the same
+ *  coordinate as a split point may be on both sides of it, and queries
+ *  with that coordinate search both sides.
+ *
+ *  Nearest neighbors and range counts can also be found for whole batches
+ *  of queries given as coordinate arrays. A batch is sorted along the
+ *  Z-order (Morton) curve, so consecutive queries are close in the plane
+ *  and walk mostly the same nodes, and is split into parts answered in
+ *  parallel on the fork-join pool. No objects are created per query.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class StaticKdTree {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    // bits per coordinate of the Z-order grid of a batch of queries
+    private static final int GRID_BITS = 15;
+    // batches smaller than this are answered on the current thread
+    private static final int PARALLEL_THRESHOLD = 1 << 10;
+
+    private final double[] xs;      // xs[i] = x-coordinate of node i
+    private final double[] ys;      // ys[i] = y-coordinate of node i
+    private final int[] ids;        // ids[i] = index of the point of node i
+    private final int size;
+
+    /**
+     * Construct the set of the given points; repeated points are added once.
+     * The array is not changed.
+     *
+     * @param points points of the set
+     * @throws NullPointerException if points or any point is null
+     */
+    public StaticKdTree(Point2D[] points) {
+        this(xsOf(points), ysOf(points));
+    }
+
+    /**
+     * Construct the set of the points (xs[i], ys[i]); repeated points are
+     * added once, with the smallest index. The arrays are not changed.
+     *
+     * @param xs x-coordinates of the points
+     * @param ys y-coordinates of the points
+     * @throws NullPointerException if xs or ys is null
+     * @throws IllegalArgumentException if the arrays have different lengths
+     *         or a coordinate is NaN
+     */
+    public StaticKdTree(double[] xs, double[] ys) {
+        if (xs == null || ys == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (xs.length != ys.length) {
+            throw new java.lang.IllegalArgumentException("arrays of different lengths");
+        }
+
+        // indices sorted by (x, y), keeping the first of repeated points
+        Integer[] sorted = new Integer[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i])) {
+                throw new java.lang.IllegalArgumentException("NaN coordinate");
+            }
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> xs[a] < xs[b] ? -1 : xs[a] > xs[b] ? 1
+                : ys[a] < ys[b] ? -1 : ys[a] > ys[b] ? 1 : Integer.compare(a, b));
+        int[] order = new int[xs.length];
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            int id = sorted[i];
+            if (n == 0 || xs[order[n - 1]] != xs[id] || ys[order[n - 1]] != ys[id]) {
+                order[n++] = id;
+            }
+        }
+
+        size = n;
+        this.xs = new double[n];
+        this.ys = new double[n];
+        this.ids = new int[n];
+        build(order, 0, n, 0, true, xs, ys);
+    }
+
+    private static double[] xsOf(Point2D[] points) {
+        if (points == null) {
+            throw new java.lang.NullPointerException();
+        }
+        double[] xs = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = points[i].x();
+        }
+        return xs;
+    }
+
+    private static double[] ysOf(Point2D[] points) {
+        double[] ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ys[i] = points[i].y();
+        }
+        return ys;
+    }
+
+    /*
+     * Puts the points order[lo, hi) into the subtree rooted at node: the
+     * point with the rank of the size of the left subtree goes to the node,
+     * smaller ones to the left subtree and bigger ones to the right.
+     */
+    private void build(int[] order, int lo, int hi, int node, boolean vertical,
+                       double[] px, double[] py) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = lo + leftSize(hi - lo);
+        select(order, lo, hi, mid, vertical ? px : py);
+        int id = order[mid];
+        xs[node] = px[id];
+        ys[node] = py[id];
+        ids[node] = id;
+        build(order, lo, mid, 2 * node + 1, !vertical, px, py);
+        build(order, mid + 1, hi, 2 * node + 2, !vertical, px, py);
+    }
+
+    // size of the left subtree of a left-complete tree of n nodes
+    private static int leftSize(int n) {
+        int height = 31 - Integer.numberOfLeadingZeros(n);     // levels below the root
+        if (height == 0) {
+            return 0;
+        }
+        int half = 1 << (height - 1);       // nodes in the last level of a full left subtree
+        int last = n - ((1 << height) - 1); // nodes in the last level
+        return half - 1 + Math.min(last, half);
+    }
+
+    /*
+     * Quickselect with random pivots on the point indices: rearranges
+     * order[lo, hi) so that the k-th smallest key is at k.
+     */
+    private static void select(int[] order, int lo, int hi, int k, double[] keys) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        hi--;
+        while (hi > lo) {
+            swap(order, lo, lo + random.nextInt(hi - lo + 1));
+            double pivot = keys[order[lo]];
+            int i = lo;
+            int j = hi + 1;
+            while (true) {
+                while (keys[order[++i]] < pivot) {
+                    if (i == hi) break;
+                }
+                while (pivot < keys[order[--j]]) {
+                    if (j == lo) break;
+                }
+                if (i >= j) break;
+                swap(order, i, j);
+            }
+            swap(order, lo, j);
+            if (j > k) hi = j - 1;
+            else if (j < k) lo = j + 1;
+            else return;
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * Checks is the set empty.
+     *
+     * @return true  if set is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of points in the set.
+     *
+     * @return int number of points in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set contain point p.
+     *
+     * @param  p     point
+     * @return true  if the set contains this point
+     *         false otherwise
+     * @throws NullPointerException if given point p is null
+     */
+    public boolean contains(Point2D p) {
+        if (p == null) {
+            throw new java.lang.NullPointerException();
+        }
+        return contains(0, p.x(), p.y(), true);
+    }
+
+    private boolean contains(int node, double x, double y, boolean vertical) {
+        while (node < size) {
+            if (xs[node] == x && ys[node] == y) {
+                return true;
+            }
+            double key = vertical ? x : y;
+            double split = vertical ? xs[node] : ys[node];
+            if (key == split && contains(2 * node + 1, x, y, !vertical)) {
+                // equal keys may be on both sides, the left side is done
+                return true;
+            }
+            node = key < split ? 2 * node + 1 : 2 * node + 2;
+            vertical = !vertical;
+        }
+        return false;
+    }
+
+    /**
+     * Draw all points to standard draw, with the split lines clipped to
+     * the bounding box of the points.
+     */
+    public void draw() {
+        if (isEmpty()) {
+            return;
+        }
+        double xmin = INF;
+        double ymin = INF;
+        double xmax = -INF;
+        double ymax = -INF;
+        for (int i = 0; i < size; i++) {
+            xmin = Math.min(xmin, xs[i]);
+            xmax = Math.max(xmax, xs[i]);
+            ymin = Math.min(ymin, ys[i]);
+            ymax = Math.max(ymax, ys[i]);
+        }
+        draw(0, true, xmin, ymin, xmax, ymax);
+    }
+
+    private void draw(int node, boolean vertical,
+                      double xmin, double ymin, double xmax, double ymax) {
+        if (node >= size) {
+            return;
+        }
+
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.setPenRadius(0.01);
+        StdDraw.point(xs[node], ys[node]);
+        StdDraw.setPenRadius();
+
+        if (vertical) {
+            StdDraw.setPenColor(StdDraw.RED);
+            StdDraw.line(xs[node], ymin, xs[node], ymax);
+            draw(2 * node + 1, false, xmin, ymin, xs[node], ymax);
+            draw(2 * node + 2, false, xs[node], ymin, xmax, ymax);
+        } else {
+            StdDraw.setPenColor(StdDraw.BLUE);
+            StdDraw.line(xmin, ys[node], xmax, ys[node]);
+            draw(2 * node + 1, true, xmin, ymin, xmax, ys[node]);
+            draw(2 * node + 2, true, xmin, ys[node], xmax, ymax);
+        }
+    }
+
+    /**
+     * All points that are inside the rectangle.
+     *
+     * @param rect given rectangle
+     * @return Iterable all points that are inside the rectangle
+     * @throws NullPointerException if given rectangle rect is null
+     */
+    public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null) {
+            throw new java.lang.NullPointerException();
+        }
+        Queue<Point2D> points = new Queue<>();
+        range(0, true, rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), points);
+        return points;
+    }
+
+    /*
+     * Collects the points of the subtree in the rectangle, or counts them
+     * if queue is null. A subtree is entered only if the rectangle reaches
+     * its side of the split, including the split line itself.
+     */
+    private int range(int node, boolean vertical,
+                      double xmin, double ymin, double xmax, double ymax,
+                      Queue<Point2D> queue) {
+        int count = 0;
+        while (node < size) {
+            double x = xs[node];
+            double y = ys[node];
+            if (x >= xmin && x <= xmax && y >= ymin && y <= ymax) {
+                count++;
+                if (queue != null) {
+                    queue.enqueue(new Point2D(x, y));
+                }
+            }
+            double split = vertical ? x : y;
+            double min = vertical ? xmin : ymin;
+            double max = vertical ? xmax : ymax;
+            boolean left = min <= split;
+            boolean right = max >= split;
+            if (left && right) {
+                count += range(2 * node + 1, !vertical, xmin, ymin, xmax, ymax, queue);
+                node = 2 * node + 2;
+            } else if (left) {
+                node = 2 * node + 1;
+            } else {
+                node = 2 * node + 2;
+            }
+            vertical = !vertical;
+        }
+        return count;
+    }
+
+    /**
+     * Number of points that are inside the rectangle, without creating
+     * them.
+     *
+     * @param rect given rectangle
+     * @return int number of points inside the rectangle
+     * @throws NullPointerException if given rectangle rect is null
+     */
+    public int rangeCount(RectHV rect) {
+        if (rect == null) {
+            throw new java.lang.NullPointerException();
+        }
+        return range(0, true, rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), null);
+    }
+
+    /**
+     * Returns nearest neighbor in the set to point p; null if the set is empty.
+     *
+     * @param p point to find its nearest neighbor
+     * @return Point2D  nearest neighbor
+     *         null     if the set is empty
+     * @throws NullPointerException if given point p is null
+     */
+    public Point2D nearest(Point2D p) {
+        if (p == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (isEmpty()) {
+            return null;
+        }
+        int node = nearestNode(p.x(), p.y());
+        return new Point2D(xs[node], ys[node]);
+    }
+
+    /**
+     * Index of the nearest neighbor to the point (x, y) in the array the set
+     * was built from; -1 if the set is empty.
+     *
+     * @param x x-coordinate of the point
+     * @param y y-coordinate of the point
+     * @return int index of the nearest neighbor, -1 if the set is empty
+     */
+    public int nearestIndex(double x, double y) {
+        if (isEmpty()) {
+            return -1;
+        }
+        return ids[nearestNode(x, y)];
+    }
+
+    // tree node of the nearest neighbor, the set is not empty
+    private int nearestNode(double x, double y) {
+        return nearestNode(x, y, new double[2]);
+    }
+
+    // the same with a holder for the best squared distance and node
+    private int nearestNode(double x, double y, double[] best) {
+        best[0] = INF;
+        best[1] = 0;
+        nearest(0, true, x, y, -INF, -INF, INF, INF, best);
+        return (int) best[1];
+    }
+
+    /*
+     * Looks for points closer than best[0] in the subtree with the given
+     * rectangle, the near side of the split first.
+     */
+    private void nearest(int node, boolean vertical, double x, double y,
+                         double xmin, double ymin, double xmax, double ymax,
+                         double[] best) {
+        if (node >= size) {
+            return;
+        }
+        // squared distance from the point to the rectangle of the subtree
+        double dx = Math.max(Math.max(xmin - x, x - xmax), 0);
+        double dy = Math.max(Math.max(ymin - y, y - ymax), 0);
+        if (dx * dx + dy * dy >= best[0]) {
+            return;
+        }
+
+        double nx = xs[node] - x;
+        double ny = ys[node] - y;
+        double distance = nx * nx + ny * ny;
+        if (distance < best[0]) {
+            best[0] = distance;
+            best[1] = node;
+        }
+
+        int left = 2 * node + 1;
+        int right = 2 * node + 2;
+        if (vertical) {
+            double split = xs[node];
+            if (x < split) {
+                nearest(left, false, x, y, xmin, ymin, split, ymax, best);
+                nearest(right, false, x, y, split, ymin, xmax, ymax, best);
+            } else {
+                nearest(right, false, x, y, split, ymin, xmax, ymax, best);
+                nearest(left, false, x, y, xmin, ymin, split, ymax, best);
+            }
+        } else {
+            double split = ys[node];
+            if (y < split) {
+                nearest(left, true, x, y, xmin, ymin, xmax, split, best);
+                nearest(right, true, x, y, xmin, split, xmax, ymax, best);
+            } else {
+                nearest(right, true, x, y, xmin, split, xmax, ymax, best);
+                nearest(left, true, x, y, xmin, ymin, xmax, split, best);
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest neighbors of the points (xs[i], ys[i]): outIdx[i]
+     * becomes nearestIndex(xs[i], ys[i]), or -1 if the set is empty.
+     *
+     * @param xs     x-coordinates of the query points
+     * @param ys     y-coordinates of the query points
+     * @param outIdx indices of the nearest neighbors
+     * @throws NullPointerException if any array is null
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public void nearestAll(double[] xs, double[] ys, int[] outIdx) {
+        if (xs == null || ys == null || outIdx == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (xs.length != ys.length || xs.length != outIdx.length) {
+            throw new java.lang.IllegalArgumentException("arrays of different lengths");
+        }
+        if (isEmpty()) {
+            Arrays.fill(outIdx, -1);
+            return;
+        }
+        long[] order = zOrder(xs, ys, xs, ys);
+        run(new BatchTask(order, 0, order.length, xs, ys, null, null, outIdx));
+    }
+
+    /**
+     * Counts the points inside the rectangles [xmin[i], xmax[i]] x
+     * [ymin[i], ymax[i]]: outCounts[i] becomes the count of rectangle i,
+     * as rangeCount() would return it.
+     *
+     * @param xmin      minimum x-coordinates of the rectangles
+     * @param ymin      minimum y-coordinates of the rectangles
+     * @param xmax      maximum x-coordinates of the rectangles
+     * @param ymax      maximum y-coordinates of the rectangles
+     * @param outCounts numbers of points inside the rectangles
+     * @throws NullPointerException if any array is null
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public void rangeCountAll(double[] xmin, double[] ymin, double[] xmax, double[] ymax,
+                              int[] outCounts) {
+        if (xmin == null || ymin == null || xmax == null || ymax == null || outCounts == null) {
+            throw new java.lang.NullPointerException();
+        }
+        int n = outCounts.length;
+        if (xmin.length != n || ymin.length != n || xmax.length != n || ymax.length != n) {
+            throw new java.lang.IllegalArgumentException("arrays of different lengths");
+        }
+        long[] order = zOrder(xmin, ymin, xmax, ymax);
+        run(new BatchTask(order, 0, order.length, xmin, ymin, xmax, ymax, outCounts));
+    }
+
+    private static void run(BatchTask task) {
+        if (task.hi - task.lo < PARALLEL_THRESHOLD) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /*
+     * Query indices sorted by the Z-order of the centers of the boxes
+     * [xmin[i], xmax[i]] x [ymin[i], ymax[i]] on a grid over the bounding box
+     * of the batch, each packed as (code << 32 | index).
+     */
+    private static long[] zOrder(double[] xmin, double[] ymin, double[] xmax, double[] ymax) {
+        int n = xmin.length;
+        double left = INF;
+        double bottom = INF;
+        double right = -INF;
+        double top = -INF;
+        for (int i = 0; i < n; i++) {
+            double x = (xmin[i] + xmax[i]) / 2;
+            double y = (ymin[i] + ymax[i]) / 2;
+            // infinite and NaN centers go to the border of the grid
+            if (Math.abs(x) < INF) {
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+            }
+            if (Math.abs(y) < INF) {
+                bottom = Math.min(bottom, y);
+                top = Math.max(top, y);
+            }
+        }
+        int cells = 1 << GRID_BITS;
+        double xscale = right > left ? cells / (right - left) : 0;
+        double yscale = top > bottom ? cells / (top - bottom) : 0;
+
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            int cx = cell(((xmin[i] + xmax[i]) / 2 - left) * xscale);
+            int cy = cell(((ymin[i] + ymax[i]) / 2 - bottom) * yscale);
+            long code = spread(cx) | spread(cy) << 1;
+            order[i] = code << 32 | i;
+        }
+        Arrays.parallelSort(order);
+        return order;
+    }
+
+    // grid cell of a scaled coordinate, clamped to the grid, 0 for NaN
+    private static int cell(double v) {
+        return (int) Math.min(Math.max(v, 0), (1 << GRID_BITS) - 1);
+    }
+
+    // spreads the bits of v apart: bit i goes to bit 2i
+    private static long spread(int v) {
+        long z = v;
+        z = (z | z << 8) & 0x00FF00FFL;
+        z = (z | z << 4) & 0x0F0F0F0FL;
+        z = (z | z << 2) & 0x33333333L;
+        z = (z | z << 1) & 0x55555555L;
+        return z;
+    }
+
+    /*
+     * Answers the queries order[lo, hi) of a batch sorted in Z-order: nearest
+     * neighbors of the points (xmin[i], ymin[i]) if xmax is null, range
+     * counts of the rectangles otherwise. Splits in halves of consecutive
+     * queries, which stay close in the plane.
+     */
+    private final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] order;
+        private final int lo;
+        private final int hi;
+        private final double[] xmin;
+        private final double[] ymin;
+        private final double[] xmax;
+        private final double[] ymax;
+        private final int[] out;
+
+        BatchTask(long[] order, int lo, int hi,
+                  double[] xmin, double[] ymin, double[] xmax, double[] ymax, int[] out) {
+            this.order = order;
+            this.lo = lo;
+            this.hi = hi;
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo >= PARALLEL_THRESHOLD) {
+                int mid = lo + (hi - lo) / 2;
+                invokeAll(new BatchTask(order, lo, mid, xmin, ymin, xmax, ymax, out),
+                          new BatchTask(order, mid, hi, xmin, ymin, xmax, ymax, out));
+                return;
+            }
+
+            if (xmax == null) {
+                double[] best = new double[2];      // shared by the queries of this part
+                for (int k = lo; k < hi; k++) {
+                    int i = (int) order[k];
+                    out[i] = ids[nearestNode(xmin[i], ymin[i], best)];
+                }
+            } else {
+                for (int k = lo; k < hi; k++) {
+                    int i = (int) order[k];
+                    out[i] = range(0, true, xmin[i], ymin[i], xmax[i], ymax[i], null);
+                }
+            }
+        }
+    }
+
+    // unit testing of the methods (optional)
+    public static void main(String[] args) {
+
+    }
+}
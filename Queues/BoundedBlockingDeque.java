@@ -0,0 +1,430 @@
+/****************************************************************************
+ *  Compilation:  javac BoundedBlockingDeque.java
+ *  Execution:
+ *  Dependencies:
+ *
+ *  Implementation of bounded blocking double-ended queue.
+ *  A fixed-capacity deque on a circular array that can be shared between
+ *  producer and consumer threads. Inserting into a full deque or removing
+ *  from an empty one blocks (or times out) instead of growing the heap or
+ *  making the caller busy-wait.
+ *
+ *  A waiting thread first spins briefly on the item count and only then
+ *  parks on a condition, so hand-offs stay fast while the buffer is hot
+ *  and idle threads do not burn CPU.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class BoundedBlockingDeque<Item> {
+
+    // spins before parking, spinning is pointless on a single core
+    private static final int SPINS =
+            Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+    private final Item[] items;     // circular buffer of items
+    private int head;               // index of the first item
+    private volatile int count;     // number of items, read without lock while spinning
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+
+    /**
+     * Initializes an empty deque with the given capacity.
+     * @param capacity maximum number of items in the deque
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public BoundedBlockingDeque(int capacity) {
+        if (capacity <= 0) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        items = (Item[]) new Object[capacity];
+        head = 0;
+        count = 0;
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+    }
+
+    /**
+     * Is this deque empty?
+     * @return true  if this deque is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Returns the number of items in the deque.
+     * @return the number of items in the deque
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the maximum number of items in the deque.
+     * @return the capacity of the deque
+     */
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Adds the item to the front of this deque if there is room.
+     * @param item the item to add
+     * @return true  if the item was added
+     *         false if the deque is full
+     */
+    public boolean offerFirst(Item item) {
+        checkItem(item);
+        lock.lock();
+        try {
+            if (count == items.length) {
+                return false;
+            }
+            linkFirst(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the end of this deque if there is room.
+     * @param item the item to add
+     * @return true  if the item was added
+     *         false if the deque is full
+     */
+    public boolean offerLast(Item item) {
+        checkItem(item);
+        lock.lock();
+        try {
+            if (count == items.length) {
+                return false;
+            }
+            linkLast(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the front of this deque, waiting for room.
+     * @param item the item to add
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void putFirst(Item item) throws InterruptedException {
+        checkItem(item);
+        spinWhileFull();
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                notFull.await();
+            }
+            linkFirst(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the end of this deque, waiting for room.
+     * @param item the item to add
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void putLast(Item item) throws InterruptedException {
+        checkItem(item);
+        spinWhileFull();
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                notFull.await();
+            }
+            linkLast(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the front of this deque, waiting up to the given
+     * time for room.
+     * @param item    the item to add
+     * @param timeout how long to wait
+     * @param unit    unit of the timeout
+     * @return true  if the item was added
+     *         false if the time elapsed while the deque was full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean offerFirst(Item item, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkItem(item);
+        long nanos = unit.toNanos(timeout);
+        spinWhileFull();
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            linkFirst(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the end of this deque, waiting up to the given
+     * time for room.
+     * @param item    the item to add
+     * @param timeout how long to wait
+     * @param unit    unit of the timeout
+     * @return true  if the item was added
+     *         false if the time elapsed while the deque was full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean offerLast(Item item, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkItem(item);
+        long nanos = unit.toNanos(timeout);
+        spinWhileFull();
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            linkLast(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the front of this deque if there is one.
+     * @return front item
+     *         null if this deque is empty
+     */
+    public Item pollFirst() {
+        lock.lock();
+        try {
+            return count == 0 ? null : unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the end of this deque if there is one.
+     * @return end item
+     *         null if this deque is empty
+     */
+    public Item pollLast() {
+        lock.lock();
+        try {
+            return count == 0 ? null : unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the front of this deque, waiting for
+     * an item to arrive.
+     * @return front item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Item takeFirst() throws InterruptedException {
+        spinWhileEmpty();
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the end of this deque, waiting for
+     * an item to arrive.
+     * @return end item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Item takeLast() throws InterruptedException {
+        spinWhileEmpty();
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the front of this deque, waiting up to
+     * the given time for an item to arrive.
+     * @param timeout how long to wait
+     * @param unit    unit of the timeout
+     * @return front item
+     *         null if the time elapsed while the deque was empty
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Item pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        spinWhileEmpty();
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the end of this deque, waiting up to
+     * the given time for an item to arrive.
+     * @param timeout how long to wait
+     * @param unit    unit of the timeout
+     * @return end item
+     *         null if the time elapsed while the deque was empty
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Item pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        spinWhileEmpty();
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns item from the front of this deque.
+     * @return front item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public Item removeFirst() {
+        Item item = pollFirst();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /**
+     * Removes and returns item from the end of this deque.
+     * @return end item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public Item removeLast() {
+        Item item = pollLast();
+        if (item == null) {
+            throw new NoSuchElementException();
+        }
+        return item;
+    }
+
+    /*
+     * Busy-waits a bounded number of rounds for an item before the caller
+     * falls back to parking on the condition.
+     */
+    private void spinWhileEmpty() {
+        for (int i = 0; i < SPINS && count == 0; i++) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // same as spinWhileEmpty() for a free slot
+    private void spinWhileFull() {
+        for (int i = 0; i < SPINS && count == items.length; i++) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void checkItem(Item item) {
+        if (item == null) {
+            throw new java.lang.NullPointerException();
+        }
+    }
+
+    // the helpers below must be called with the lock held
+
+    private void linkFirst(Item item) {
+        head = head == 0 ? items.length - 1 : head - 1;
+        items[head] = item;
+        count++;
+        notEmpty.signal();
+    }
+
+    private void linkLast(Item item) {
+        int tail = head + count;
+        if (tail >= items.length) tail -= items.length;
+        items[tail] = item;
+        count++;
+        notEmpty.signal();
+    }
+
+    private Item unlinkFirst() {
+        Item item = items[head];
+        items[head] = null;                                 // to avoid loitering
+        head = head == items.length - 1 ? 0 : head + 1;
+        count--;
+        notFull.signal();
+        return item;
+    }
+
+    private Item unlinkLast() {
+        int tail = head + count - 1;
+        if (tail >= items.length) tail -= items.length;
+        Item item = items[tail];
+        items[tail] = null;                                 // to avoid loitering
+        count--;
+        notFull.signal();
+        return item;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
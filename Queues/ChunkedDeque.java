@@ -0,0 +1,230 @@
+/****************************************************************************
+ *  Compilation:  javac ChunkedDeque.java
+ *  Execution:
+ *  Dependencies:
+ *
+ *  Implementation of double-ended queue as an unrolled linked list.
+ *  Items are stored in fixed-size array chunks linked in both directions.
+ *  The deque grows by linking a new chunk at either end, so existing items
+ *  are never copied, and the per-item cost is one array slot plus a share
+ *  of the chunk header instead of a whole node.
+ *
+ *  One emptied chunk is kept as a spare so a deque oscillating around
+ *  a chunk boundary does not allocate on every operation.
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class ChunkedDeque<Item> implements Iterable<Item> {
+
+    private static final int CHUNK_SIZE = 256;      // items per chunk
+
+    private class Chunk {
+        private final Item[] items = (Item[]) new Object[CHUNK_SIZE];
+        private Chunk next;
+        private Chunk prev;
+    }
+
+    private Chunk first;        // chunk holding the front item
+    private Chunk last;         // chunk holding the end item
+    private int firstIndex;     // index of the front item in first
+    private int lastIndex;      // index after the end item in last
+    private Chunk spare;        // recycled chunk, may be null
+    private int size;
+
+    /**
+     * Initializes an empty deque.
+     */
+    public ChunkedDeque() {
+        size = 0;
+        first = new Chunk();
+        last = first;
+        firstIndex = CHUNK_SIZE / 2;
+        lastIndex = CHUNK_SIZE / 2;
+    }
+
+    /**
+     * Is this deque empty?
+     * @return true  if this queue is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of items in the deque.
+     * @return the number of items in the deque
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the item to the front of this deque.
+     * @param item the item to add
+     */
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new java.lang.NullPointerException();
+        }
+
+        if (firstIndex == 0) {
+            Chunk chunk = newChunk();
+            chunk.next = first;
+            first.prev = chunk;
+            first = chunk;
+            firstIndex = CHUNK_SIZE;
+        }
+        first.items[--firstIndex] = item;
+        size++;
+    }
+
+    /**
+     * Adds the item to the end of this deque.
+     * @param item the item to add
+     */
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new java.lang.NullPointerException();
+        }
+
+        if (lastIndex == CHUNK_SIZE) {
+            Chunk chunk = newChunk();
+            chunk.prev = last;
+            last.next = chunk;
+            last = chunk;
+            lastIndex = 0;
+        }
+        last.items[lastIndex++] = item;
+        size++;
+    }
+
+    /**
+     * Removes and returns item from the front of this deque.
+     * @return front item
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        Item olditem = first.items[firstIndex];
+        first.items[firstIndex++] = null;                   // to avoid loitering
+        size--;
+
+        if (size == 0) {
+            recenter();
+        } else if (firstIndex == CHUNK_SIZE) {
+            Chunk oldfirst = first;
+            first = first.next;
+            first.prev = null;
+            firstIndex = 0;
+            recycle(oldfirst);
+        }
+        return olditem;
+    }
+
+    /**
+     * Removes and returns item from the end of this deque.
+     * @return end item
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        Item olditem = last.items[--lastIndex];
+        last.items[lastIndex] = null;                       // to avoid loitering
+        size--;
+
+        if (size == 0) {
+            recenter();
+        } else if (lastIndex == 0) {
+            Chunk oldlast = last;
+            last = last.prev;
+            last.next = null;
+            lastIndex = CHUNK_SIZE;
+            recycle(oldlast);
+        }
+        return olditem;
+    }
+
+    /*
+     * An empty deque always has a single chunk, the indices are moved to its
+     * middle so that both ends have room to grow.
+     */
+    private void recenter() {
+        firstIndex = CHUNK_SIZE / 2;
+        lastIndex = CHUNK_SIZE / 2;
+    }
+
+    private Chunk newChunk() {
+        if (spare == null) {
+            return new Chunk();
+        }
+        Chunk chunk = spare;
+        spare = null;
+        return chunk;
+    }
+
+    // chunks are empty (all slots null) when they are unlinked
+    private void recycle(Chunk chunk) {
+        chunk.next = null;
+        chunk.prev = null;
+        spare = chunk;
+    }
+
+    /**
+     * Returns an iterator over the items from front to end in the deque
+     * @return an iterator over items from front to end in the deque
+     */
+    @Override
+    public Iterator<Item> iterator() {
+        return new ChunkIterator();
+    }
+
+    private class ChunkIterator implements Iterator<Item> {
+        private Chunk chunk = first;
+        private int index = firstIndex;
+        private int remaining = size;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Item next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            if (index == CHUNK_SIZE) {
+                chunk = chunk.next;
+                index = 0;
+            }
+            remaining--;
+            return chunk.items[index++];
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+
+    }
+}
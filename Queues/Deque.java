@@ -18,6 +18,10 @@
  */
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Deque<Item> implements Iterable<Item> {
 
@@ -170,6 +174,101 @@ public class Deque<Item> implements Iterable<Item> {
         }
     }
 
+    /**
+     * Returns a spliterator over the items from front to end in the deque.
+     * Both halves of a split report exact sizes, so parallel streams over
+     * the deque are balanced.
+     * @return a spliterator over items from front to end in the deque
+     */
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new DequeSpliterator(sentinel.next, size);
+    }
+
+    /**
+     * Returns a sequential stream over the items from front to end.
+     * @return a sequential stream over the items in the deque
+     */
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream over the items from front to end.
+     * @return a parallel stream over the items in the deque
+     */
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /*
+     * Covers the run of remaining nodes starting at current. Splitting walks
+     * half of the run, there is no cheaper way to find the middle of
+     * a linked list.
+     */
+    private class DequeSpliterator implements Spliterator<Item> {
+        private Node current;
+        private int remaining;
+
+        public DequeSpliterator(Node origin, int count) {
+            current = origin;
+            remaining = count;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new java.lang.NullPointerException();
+            }
+            if (remaining == 0) {
+                return false;
+            }
+            Item item = current.item;
+            current = current.next;
+            remaining--;
+            action.accept(item);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new java.lang.NullPointerException();
+            }
+            Node node = current;
+            for (int i = remaining; i > 0; i--) {
+                action.accept(node.item);
+                node = node.next;
+            }
+            current = node;
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<Item> trySplit() {
+            if (remaining < 2) {
+                return null;
+            }
+            int half = remaining >>> 1;
+            Node prefix = current;
+            for (int i = 0; i < half; i++) {
+                current = current.next;
+            }
+            remaining -= half;
+            return new DequeSpliterator(prefix, half);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     // unit testing
     public static void main(String[] args) {
 
@@ -0,0 +1,575 @@
+/****************************************************************************
+ *  Compilation:  javac MappedDeque.java
+ *  Execution:    java MappedDeque
+ *  Dependencies:
+ *
+ *  Implementation of persistent double-ended queue of byte arrays stored
+ *  off-heap in memory-mapped segment files.
+ *
+ *  The deque lives in a directory of fixed-size segment files numbered in
+ *  deque order, plus a small meta file holding the numbers of the head and
+ *  tail segments. Each segment starts with a header [start, end] bounding
+ *  the entries it holds, every entry is stored as [length][bytes][length]
+ *  so it can be read from either side. Adding at the front writes downwards
+ *  from the start of the head segment, adding at the end writes upwards from
+ *  the end of the tail segment; when there is no room a new segment is
+ *  linked at that end, unless the deque is empty: then the bounds of its
+ *  only segment are moved to the other edge. Segments emptied by removals
+ *  are deleted.
+ *
+ *  Entry bytes are written before the header field that publishes them, so
+ *  reopening the directory after a process crash recovers every completed
+ *  operation. Surviving an operating system crash needs force().
+ *
+ ****************************************************************************/
+
+/**
+ *
+ * @author Maxim Butyrin
+ *
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class MappedDeque implements Iterable<byte[]>, Closeable {
+
+    private static final int MAGIC = 0x4d444551;            // "MDEQ"
+    private static final int HEADER = 8;                     // segment [start, end]
+    private static final int META_SIZE = 24;                 // magic, segment size, head, tail
+    private static final long FIRST_SEGMENT = 1L << 40;      // room to grow both ways
+    private static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private final File directory;
+    private final int segmentSize;
+    private final MappedByteBuffer meta;
+    private final Map<Long, MappedByteBuffer> segments;
+
+    private long headSegment;
+    private long tailSegment;
+    private MappedByteBuffer head;      // mapped head segment
+    private MappedByteBuffer tail;      // mapped tail segment
+    private long size;
+    private int crashAfter;             // unit testing: bound writes before a simulated crash
+
+    /**
+     * Opens the deque stored in the given directory, creating an empty one
+     * with 64 MB segments if the directory holds none.
+     *
+     * @param directory directory for segment files
+     * @throws UncheckedIOException if the files cannot be created or read
+     */
+    public MappedDeque(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the deque stored in the given directory, creating an empty one
+     * with the given segment size if the directory holds none. An existing
+     * deque keeps the segment size it was created with.
+     *
+     * @param directory   directory for segment files
+     * @param segmentSize size of each segment file in bytes
+     * @throws IllegalArgumentException if segment size is too small
+     * @throws UncheckedIOException if the files cannot be created or read
+     */
+    public MappedDeque(File directory, int segmentSize) {
+        if (segmentSize < 4 * HEADER) {
+            throw new java.lang.IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.segments = new HashMap<>();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new UncheckedIOException(
+                    new IOException("cannot create " + directory));
+        }
+        File metaFile = new File(directory, "deque.meta");
+        boolean exists = metaFile.exists();
+        meta = map(metaFile, META_SIZE);
+
+        if (exists && meta.getInt(0) == MAGIC) {
+            this.segmentSize = meta.getInt(4);
+            headSegment = meta.getLong(8);
+            tailSegment = meta.getLong(16);
+            recover();
+        } else {
+            this.segmentSize = segmentSize;
+            headSegment = FIRST_SEGMENT;
+            tailSegment = FIRST_SEGMENT;
+            MappedByteBuffer segment = createSegment(FIRST_SEGMENT, middle());
+            meta.putInt(4, segmentSize);
+            meta.putLong(8, headSegment);
+            meta.putLong(16, tailSegment);
+            meta.putInt(0, MAGIC);
+            head = segment;
+            tail = segment;
+            size = 0;
+        }
+    }
+
+    /*
+     * Drops segment files left outside [head, tail] by a crash in the middle
+     * of linking or unlinking, then counts the entries.
+     */
+    private void recover() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                long id = Long.parseLong(name.substring(0, name.length() - 4), 16);
+                if (id < headSegment || id > tailSegment) {
+                    file.delete();
+                }
+            }
+        }
+
+        // a crash right after linking a segment can leave it empty at either end
+        while (headSegment < tailSegment && isEmpty(segment(headSegment))) {
+            headSegment++;
+            meta.putLong(8, headSegment);
+            deleteSegment(headSegment - 1);
+        }
+        while (tailSegment > headSegment && isEmpty(segment(tailSegment))) {
+            tailSegment--;
+            meta.putLong(16, tailSegment);
+            deleteSegment(tailSegment + 1);
+        }
+
+        head = segment(headSegment);
+        tail = segment(tailSegment);
+        if (isEmpty(head)) {
+            recenter();                 // bounds may be crossed by a crash in moveBounds()
+        }
+        size = 0;
+        for (long id = headSegment; id <= tailSegment; id++) {
+            MappedByteBuffer segment = segment(id);
+            int end = segment.getInt(4);
+            for (int pos = segment.getInt(0); pos < end; pos += segment.getInt(pos) + 8) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Is this deque empty?
+     * @return true  if this deque is empty
+     *         false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of items in the deque.
+     * @return the number of items in the deque
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Adds the item to the front of this deque.
+     * @param item the bytes to add
+     * @throws NullPointerException if item is null
+     * @throws IllegalArgumentException if item does not fit in a segment
+     */
+    public void addFirst(byte[] item) {
+        checkItem(item);
+        int length = item.length + 8;
+        int start = head.getInt(0);
+
+        if (start - length < HEADER && size == 0) {
+            moveBounds(segmentSize);
+            start = segmentSize;
+        } else if (start - length < HEADER) {
+            MappedByteBuffer segment = createSegment(headSegment - 1, segmentSize);
+            head = segment;
+            headSegment--;
+            meta.putLong(8, headSegment);
+            start = segmentSize;
+        }
+
+        int pos = start - length;
+        writeEntry(head, pos, item);
+        putBound(head, 0, pos);                 // publish
+        size++;
+    }
+
+    /**
+     * Adds the item to the end of this deque.
+     * @param item the bytes to add
+     * @throws NullPointerException if item is null
+     * @throws IllegalArgumentException if item does not fit in a segment
+     */
+    public void addLast(byte[] item) {
+        checkItem(item);
+        int length = item.length + 8;
+        int end = tail.getInt(4);
+
+        if (end + length > segmentSize && size == 0) {
+            moveBounds(HEADER);
+            end = HEADER;
+        } else if (end + length > segmentSize) {
+            MappedByteBuffer segment = createSegment(tailSegment + 1, HEADER);
+            tail = segment;
+            tailSegment++;
+            meta.putLong(16, tailSegment);
+            end = HEADER;
+        }
+
+        writeEntry(tail, end, item);
+        putBound(tail, 4, end + length);        // publish
+        size++;
+    }
+
+    /**
+     * Returns the front item without copying it out of the mapped segment.
+     * The buffer is read-only and valid until the item is removed.
+     *
+     * @return read-only view of the front item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public ByteBuffer peekFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int pos = head.getInt(0);
+        return view(head, pos + 4, head.getInt(pos));
+    }
+
+    /**
+     * Returns the end item without copying it out of the mapped segment.
+     * The buffer is read-only and valid until the item is removed.
+     *
+     * @return read-only view of the end item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public ByteBuffer peekLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int end = tail.getInt(4);
+        int length = tail.getInt(end - 4);
+        return view(tail, end - 4 - length, length);
+    }
+
+    /**
+     * Removes and returns item from the front of this deque.
+     * @return front item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public byte[] removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int pos = head.getInt(0);
+        int length = head.getInt(pos);
+        byte[] item = new byte[length];
+        head.get(pos + 4, item);
+
+        int start = pos + length + 8;
+        size--;
+        putBound(head, 0, start);               // publish, the last removal leaves start == end
+        if (start == head.getInt(4)) {
+            releaseHead();
+        }
+        return item;
+    }
+
+    /**
+     * Removes and returns item from the end of this deque.
+     * @return end item
+     * @throws java.util.NoSuchElementException if this deque is empty
+     */
+    public byte[] removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int end = tail.getInt(4);
+        int length = tail.getInt(end - 4);
+        byte[] item = new byte[length];
+        tail.get(end - 4 - length, item);
+
+        end -= length + 8;
+        size--;
+        putBound(tail, 4, end);                 // publish, the last removal leaves start == end
+        if (end == tail.getInt(0)) {
+            releaseTail();
+        }
+        return item;
+    }
+
+    // head segment became empty: unlink and delete it, or recenter the last one
+    private void releaseHead() {
+        if (headSegment == tailSegment) {
+            recenter();
+            return;
+        }
+        long oldSegment = headSegment;
+        headSegment++;
+        head = segment(headSegment);
+        meta.putLong(8, headSegment);
+        deleteSegment(oldSegment);
+    }
+
+    // tail segment became empty: unlink and delete it, or recenter the last one
+    private void releaseTail() {
+        if (headSegment == tailSegment) {
+            recenter();
+            return;
+        }
+        long oldSegment = tailSegment;
+        tailSegment--;
+        tail = segment(tailSegment);
+        meta.putLong(16, tailSegment);
+        deleteSegment(oldSegment);
+    }
+
+    // the only segment is empty, move its bounds to the middle so that both ends have room
+    private void recenter() {
+        moveBounds(middle());
+    }
+
+    /*
+     * Moves the empty bounds, start == end, of the only segment to the given
+     * position. The bound on the side of the move goes first: until the
+     * other one follows start > end, so [start, end] holds nothing whatever
+     * a crash leaves behind, and recover() recenters it.
+     */
+    private void moveBounds(int position) {
+        if (head.getInt(0) < position) {
+            putBound(head, 0, position);
+            putBound(head, 4, position);
+        } else {
+            putBound(head, 4, position);
+            putBound(head, 0, position);
+        }
+    }
+
+    // writes the start (offset 0) or end (offset 4) bound of a segment header
+    private void putBound(MappedByteBuffer segment, int offset, int value) {
+        segment.putInt(offset, value);
+        if (crashAfter > 0 && --crashAfter == 0) {
+            throw new IllegalStateException("simulated crash");
+        }
+    }
+
+    /**
+     * Flushes all mapped segments and the meta file to the storage device.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        meta.force();
+    }
+
+    /**
+     * Flushes the deque to the storage device and drops the mappings.
+     * The deque cannot be used after it is closed.
+     */
+    @Override
+    public void close() {
+        force();
+        segments.clear();
+        head = null;
+        tail = null;
+    }
+
+    /**
+     * Returns an iterator over copies of the items from front to end.
+     * @return an iterator over items from front to end in the deque
+     */
+    @Override
+    public Iterator<byte[]> iterator() {
+        return new SegmentIterator();
+    }
+
+    private class SegmentIterator implements Iterator<byte[]> {
+        private long id = headSegment;
+        private MappedByteBuffer segment = head;
+        private int pos = head.getInt(0);
+        private long remaining = size;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            while (pos == segment.getInt(4)) {
+                segment = segment(++id);
+                pos = segment.getInt(0);
+            }
+            int length = segment.getInt(pos);
+            byte[] item = new byte[length];
+            segment.get(pos + 4, item);
+            pos += length + 8;
+            remaining--;
+            return item;
+        }
+    }
+
+    private void checkItem(byte[] item) {
+        if (item == null) {
+            throw new java.lang.NullPointerException();
+        }
+        if (item.length + 8 > segmentSize - HEADER) {
+            throw new java.lang.IllegalArgumentException(
+                    "item of " + item.length + " bytes does not fit in a segment");
+        }
+    }
+
+    private static void writeEntry(MappedByteBuffer segment, int pos, byte[] item) {
+        segment.putInt(pos, item.length);
+        segment.put(pos + 4, item);
+        segment.putInt(pos + 4 + item.length, item.length);
+    }
+
+    private static ByteBuffer view(MappedByteBuffer segment, int pos, int length) {
+        return segment.slice(pos, length).asReadOnlyBuffer();
+    }
+
+    private static boolean isEmpty(MappedByteBuffer segment) {
+        return segment.getInt(0) >= segment.getInt(4);
+    }
+
+    private int middle() {
+        return (HEADER + segmentSize) / 2 & ~3;
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%016x.seg", id));
+    }
+
+    private MappedByteBuffer segment(long id) {
+        MappedByteBuffer segment = segments.get(id);
+        if (segment == null) {
+            segment = map(segmentFile(id), segmentSize);
+            segments.put(id, segment);
+        }
+        return segment;
+    }
+
+    // a fresh segment with empty bounds at the given position
+    private MappedByteBuffer createSegment(long id, int position) {
+        File file = segmentFile(id);
+        file.delete();
+        MappedByteBuffer segment = segment(id);
+        segment.putInt(0, position);
+        segment.putInt(4, position);
+        return segment;
+    }
+
+    /*
+     * The mapping stays valid until it is garbage collected, deleting the
+     * file only removes its name.
+     */
+    private void deleteSegment(long id) {
+        segments.remove(id);
+        segmentFile(id).delete();
+    }
+
+    private static MappedByteBuffer map(File file, int length) {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) throws IOException {
+        File directory = java.nio.file.Files.createTempDirectory("deque").toFile();
+
+        // the first item does not fit between the middle and either edge
+        try (MappedDeque deque = new MappedDeque(new File(directory, "last"), 64)) {
+            deque.addLast(new byte[30]);
+            check(deque.size() == 1 && deque.peekFirst().remaining() == 30);
+            check(deque.removeFirst().length == 30 && deque.isEmpty());
+            deque.addLast(new byte[] { 1, 2, 3 });
+            check(deque.removeFirst().length == 3 && deque.isEmpty());
+        }
+        try (MappedDeque deque = new MappedDeque(new File(directory, "first"), 64)) {
+            deque.addFirst(new byte[30]);
+            check(deque.size() == 1 && deque.peekLast().remaining() == 30);
+            check(deque.removeLast().length == 30 && deque.isEmpty());
+            deque.addFirst(new byte[] { 1, 2, 3 });
+            check(deque.removeLast().length == 3 && deque.isEmpty());
+        }
+
+        // a crash after any bound write of removing the last item, which lies
+        // across the middle: publish, then the two writes of recenter()
+        for (int writes = 1; writes <= 3; writes++) {
+            File crashed = new File(directory, "crash" + writes);
+            byte[] item = new byte[30];
+            item[0] = 7;
+            try (MappedDeque deque = new MappedDeque(crashed, 64)) {
+                deque.addLast(item);
+                deque.crashAfter = writes;
+                try {
+                    deque.removeFirst();
+                } catch (IllegalStateException e) {
+                    // the process died here, the mapped bytes are all that is left
+                }
+            }
+            try (MappedDeque deque = new MappedDeque(crashed, 64)) {
+                check(deque.size() <= 1);
+                if (deque.size() == 1) {
+                    check(deque.removeFirst()[0] == 7);
+                }
+                deque.addLast(new byte[30]);
+                deque.addFirst(new byte[] { 13 });
+                check(deque.size() == 2 && deque.removeFirst()[0] == 13);
+                check(deque.removeLast().length == 30 && deque.isEmpty());
+            }
+        }
+
+        // reopened deque keeps its items in order
+        try (MappedDeque deque = new MappedDeque(new File(directory, "order"), 64)) {
+            for (int i = 0; i < 20; i++) {
+                deque.addLast(new byte[] { (byte) i });
+                deque.addFirst(new byte[] { (byte) -i });
+            }
+        }
+        try (MappedDeque deque = new MappedDeque(new File(directory, "order"), 64)) {
+            check(deque.size() == 40);
+            for (int i = 19; i >= 0; i--) {
+                check(deque.removeFirst()[0] == (byte) -i);
+            }
+            for (int i = 0; i < 20; i++) {
+                check(deque.removeFirst()[0] == (byte) i);
+            }
+            check(deque.isEmpty());
+        }
+        System.out.println("ok");
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new AssertionError();
+        }
+    }
+}
@@ -7,6 +7,10 @@
  *  A randomized queue is similar to items stack or queue, except that the item
  *  removed is chosen uniformly at random from items in the data structure.
  *
+ *  By default random indices come from the shared StdRandom generator.
+ *  A queue constructed with its own RandomGenerator draws from it instead,
+ *  which makes runs reproducible and keeps threads off shared state.
+ *
  ****************************************************************************/
 
 /**
@@ -18,11 +22,17 @@
 import edu.princeton.cs.algs4.StdRandom;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class RandomizedQueue<Item> implements Iterable<Item> {
     private Item[] items;     // array of items
     private int n;            // number of items in queue
+    private final RandomGenerator random;   // null to use StdRandom
 
     /**
      * Initializes an empty queue.
@@ -30,6 +40,22 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     public RandomizedQueue() {
         items = (Item[]) new Object[2];
         n = 0;
+        random = null;
+    }
+
+    /**
+     * Initializes an empty queue drawing random indices from
+     * the given generator.
+     * @param random the source of randomness for this queue
+     * @throws NullPointerException if random is null
+     */
+    public RandomizedQueue(RandomGenerator random) {
+        if (random == null) {
+            throw new java.lang.NullPointerException();
+        }
+        items = (Item[]) new Object[2];
+        n = 0;
+        this.random = random;
     }
 
     /**
@@ -60,6 +86,25 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         items = temp;
     }
 
+    /*
+     * Returns a uniformly distributed index in [0, bound).
+     * Uses Lemire's multiply-and-shift method, the modulo is only computed
+     * on the rare path where the draw may be biased.
+     */
+    private int uniform(int bound) {
+        if (random == null) return StdRandom.uniform(bound);
+        long m = (random.nextInt() & 0xFFFFFFFFL) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (random.nextInt() & 0xFFFFFFFFL) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
     /**
      * Adds the item to this queue.
      * @param item the item to add
@@ -80,7 +125,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     public Item dequeue() {
         // choose random item to return
         if (isEmpty()) throw new NoSuchElementException();
-        int randomIndex = StdRandom.uniform(n);
+        int randomIndex = uniform(n);
         Item randomItem = items[randomIndex];
         // fill the gap with last item
         Item lastItem = items[n - 1];
@@ -100,7 +145,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
      */
     public Item sample() {
         if (isEmpty()) throw new NoSuchElementException("Stack underflow");
-        int randomIndex = StdRandom.uniform(n);
+        int randomIndex = uniform(n);
         return items[randomIndex];
     }
 
@@ -119,10 +164,12 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
         public RandomizedQueueIterator() {
             random = new int[n];
+            // Fisher-Yates shuffle of the indices
             for (int i = 0; i < random.length; i++) {
-                random[i] = i;
+                int r = uniform(i + 1);
+                random[i] = random[r];
+                random[r] = i;
             }
-            StdRandom.shuffle(random);
         }
 
         public boolean hasNext() {
@@ -141,6 +188,76 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
     }
 
+    /**
+     * Returns a spliterator over the items of the queue.
+     * Unlike the iterator it walks the backing array directly and reports
+     * no encounter order, so it splits in constant time without shuffling.
+     * @return a spliterator over the items in the queue
+     */
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new ArraySpliterator(0, n);
+    }
+
+    /**
+     * Returns a sequential stream over the items of the queue.
+     * @return a sequential stream over the items in the queue
+     */
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream over the items of the queue.
+     * @return a parallel stream over the items in the queue
+     */
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    // a spliterator over items[index, fence), halved on every split
+    private class ArraySpliterator implements Spliterator<Item> {
+        private final Item[] array = items;
+        private int index;
+        private final int fence;
+
+        public ArraySpliterator(int origin, int fence) {
+            index = origin;
+            this.fence = fence;
+        }
+
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (action == null) throw new NullPointerException();
+            if (index >= fence) return false;
+            action.accept(array[index++]);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Item> action) {
+            if (action == null) throw new NullPointerException();
+            for (int i = index; i < fence; i++) {
+                action.accept(array[i]);
+            }
+            index = fence;
+        }
+
+        public Spliterator<Item> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            ArraySpliterator prefix = new ArraySpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     public static void main(String[] args) {
     }
 }